@@ -0,0 +1,79 @@
+package com.iftm.client.benchmarks;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.iftm.client.DsclientApplication;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientService;
+
+/*
+ * Sobe a aplicação (sem servidor web) sobre um H2 em memória próprio e carrega "rows" clientes.
+ * Os clientes gerados têm:
+ * 	- cpf = dígitos de i invertidos (únicos e com prefixos espalhados)
+ * 	- income = 1000 + (i % 10000)
+ * 	- children = i % 5
+ */
+@State(Scope.Benchmark)
+public class ClientDatabaseState {
+
+	@Param({ "10000", "100000", "1000000" })
+	public int rows;
+
+	public ConfigurableApplicationContext context;
+	public ClientService service;
+	public ClientRepository repository;
+
+	@Setup(Level.Trial)
+	public void start() {
+		SpringApplication app = new SpringApplication(DsclientApplication.class);
+		app.setWebApplicationType(WebApplicationType.NONE);
+		context = app.run(
+				"--spring.datasource.url=jdbc:h2:mem:jmh" + rows + ";DB_CLOSE_DELAY=-1",
+				"--spring.jpa.show-sql=false",
+				"--client.search-index.enabled=false",
+				"--logging.level.root=WARN");
+		service = context.getBean(ClientService.class);
+		repository = context.getBean(ClientRepository.class);
+		seed(context.getBean(JdbcTemplate.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() {
+		context.close();
+	}
+
+	public static String cpfOf(int i) {
+		return new StringBuilder(String.format("%011d", i)).reverse().toString();
+	}
+
+	private void seed(JdbcTemplate jdbc) {
+		Timestamp birthDate = Timestamp.from(Instant.parse("1990-01-01T00:00:00Z"));
+		List<Object[]> batch = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			batch.add(new Object[] { 1000L + i, "Cliente " + i, cpfOf(i), 1000.0 + (i % 10000), birthDate, i % 5 });
+			if (batch.size() == 10_000) {
+				insert(jdbc, batch);
+			}
+		}
+		insert(jdbc, batch);
+	}
+
+	private static void insert(JdbcTemplate jdbc, List<Object[]> batch) {
+		jdbc.batchUpdate("INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES (?, ?, ?, ?, ?, ?, 0)", batch);
+		batch.clear();
+	}
+}
@@ -0,0 +1,80 @@
+package com.iftm.client.benchmarks;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+
+/*
+ * Custo de CPU sem banco: Client -> ClientDTO e serialização JSON de uma Page<ClientDTO>,
+ * com o ObjectMapper configurado como o do Spring Boot (datas em ISO-8601).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientMappingBenchmark {
+
+	@Param({ "12", "100" })
+	public int pageSize;
+
+	private Client client;
+	private Page<Client> entities;
+	private Page<ClientDTO> page;
+	private ObjectMapper objectMapper;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		client = new Client(1L, "Clarice Lispector", "10919444522", 3800.0, Instant.parse("1960-04-13T07:50:00Z"), 2);
+		List<Client> list = new ArrayList<>();
+		for (int i = 0; i < pageSize; i++) {
+			list.add(new Client((long) i, "Cliente " + i, ClientDatabaseState.cpfOf(i), 1000.0 + i,
+					Instant.parse("1990-01-01T00:00:00Z"), i % 5));
+		}
+		entities = new PageImpl<>(list, PageRequest.of(0, pageSize), 1_000_000);
+		page = entities.map(x -> new ClientDTO(x));
+		objectMapper = new ObjectMapper()
+				.registerModule(new JavaTimeModule())
+				.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+	}
+
+	@Benchmark
+	public ClientDTO mapEntityToDto() {
+		return new ClientDTO(client);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> mapPageToDto() {
+		return entities.map(x -> new ClientDTO(x));
+	}
+
+	@Benchmark
+	public String serializePage() throws JsonProcessingException {
+		return objectMapper.writeValueAsString(page);
+	}
+}
@@ -0,0 +1,87 @@
+package com.iftm.client.benchmarks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+
+/*
+ * Consultas do ClientService e do ClientRepository contra 10 mil, 100 mil e 1 milhão de clientes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientServiceBenchmark {
+
+	private static final PageRequest FIRST_PAGE = PageRequest.of(0, 12, Direction.ASC, "name");
+
+	@Benchmark
+	public Page<ClientDTO> serviceFindAllPagedFirstPage(ClientDatabaseState state) {
+		return state.service.findAllPaged(FIRST_PAGE);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> serviceFindAllPagedMiddlePage(ClientDatabaseState state) {
+		return state.service.findAllPaged(PageRequest.of(state.rows / 24, 12, Direction.ASC, "name"));
+	}
+
+	@Benchmark
+	public Page<ClientDTO> serviceFindByIncome(ClientDatabaseState state) {
+		return state.service.findByIncome(FIRST_PAGE, 1500.0);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> serviceFindByIncomeGreaterThan(ClientDatabaseState state) {
+		return state.service.findByIncomeGreaterThan(FIRST_PAGE, 10500.0);
+	}
+
+	@Benchmark
+	public Page<ClientDTO> serviceFindByCpfLike(ClientDatabaseState state) {
+		return state.service.findByCpfLike(FIRST_PAGE, "%4321%");
+	}
+
+	@Benchmark
+	public Optional<Client> repositoryFindById(ClientDatabaseState state) {
+		return state.repository.findById(1000L + state.rows / 2);
+	}
+
+	@Benchmark
+	public Optional<Client> repositoryFindByCpf(ClientDatabaseState state) {
+		return state.repository.findByCpf(ClientDatabaseState.cpfOf(state.rows / 2));
+	}
+
+	@Benchmark
+	public List<Client> repositoryFindByIncomeGreaterThan(ClientDatabaseState state) {
+		return state.repository.findByIncomeGreaterThan(10990.0);
+	}
+
+	@Benchmark
+	public List<Client> repositoryFindByCpfLike(ClientDatabaseState state) {
+		return state.repository.findByCpfLike("%43210%");
+	}
+
+	@Benchmark
+	public List<Client> repositoryFindByCpfStartingWith(ClientDatabaseState state) {
+		return state.repository.findByCpfStartingWith("43210");
+	}
+
+	@Benchmark
+	public Page<Client> repositoryFindByIncomePaged(ClientDatabaseState state) {
+		return state.repository.findByIncome(1500.0, FIRST_PAGE);
+	}
+}
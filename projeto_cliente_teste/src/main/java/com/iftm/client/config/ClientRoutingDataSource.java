@@ -0,0 +1,112 @@
+package com.iftm.client.config;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/*
+ * Envia as transações somente leitura para uma das réplicas e todo o resto (escritas, DDL,
+ * acessos sem transação) para o primário. Precisa ficar atrás de um LazyConnectionDataSourceProxy:
+ * o gerenciador de transação pede a conexão antes de marcar a transação como somente leitura,
+ * e o proxy só busca a conexão real no primeiro comando, quando a marcação já foi feita.
+ *
+ * Enquanto o ReplicaLagGuard indicar uma escrita recente, as leituras também vão ao primário.
+ */
+public class ClientRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+	public enum Selection {
+		ROUND_ROBIN, LEAST_CONNECTIONS
+	}
+
+	static final String PRIMARY = "primary";
+
+	private final HikariDataSource primary;
+	private final List<HikariDataSource> replicas;
+	private final Selection selection;
+	private final ReplicaLagGuard lagGuard;
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ClientRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, Selection selection,
+			ReplicaLagGuard lagGuard) {
+		this.primary = primary;
+		this.replicas = replicas;
+		this.selection = selection;
+		this.lagGuard = lagGuard;
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(PRIMARY, primary);
+		for (HikariDataSource replica : replicas) {
+			targets.put(replica.getPoolName(), replica);
+		}
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	/*
+	 * O DataSource a expor como bean: este roteador atrás do LazyConnectionDataSourceProxy.
+	 */
+	public Lazy lazy() {
+		return new Lazy(this);
+	}
+
+	@Override
+	public void close() {
+		replicas.forEach(HikariDataSource::close);
+		primary.close();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				|| lagGuard.recentWrite()) {
+			return PRIMARY;
+		}
+		return replica().getPoolName();
+	}
+
+	private HikariDataSource replica() {
+		if (selection == Selection.LEAST_CONNECTIONS) {
+			HikariDataSource best = null;
+			int bestActive = Integer.MAX_VALUE;
+			for (HikariDataSource replica : replicas) {
+				int active = activeConnections(replica);
+				if (active < bestActive) {
+					best = replica;
+					bestActive = active;
+				}
+			}
+			return best;
+		}
+		return replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+	}
+
+	// o pool do Hikari só existe depois da primeira conexão
+	private static int activeConnections(HikariDataSource replica) {
+		HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+		return pool == null ? 0 : pool.getActiveConnections();
+	}
+
+	public static class Lazy extends LazyConnectionDataSourceProxy implements Closeable {
+
+		private final ClientRoutingDataSource routing;
+
+		private Lazy(ClientRoutingDataSource routing) {
+			super(routing);
+			this.routing = routing;
+		}
+
+		@Override
+		public void close() {
+			routing.close();
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.iftm.client.config;
+
+import java.sql.SQLException;
+
+import com.zaxxer.hikari.SQLExceptionOverride;
+
+/*
+ * O Hikari descarta a conexão em qualquer erro com SQLState HYT00, mas no H2 esse é também o
+ * "Timeout trying to lock table" (código 50200): a conexão continua boa, só o lock não veio.
+ * Sem isso, cada lock não obtido fecharia a conexão e o rollback da transação falharia.
+ * Ligado por spring.datasource.hikari.exception-override-class-name.
+ */
+public class LockTimeoutExceptionOverride implements SQLExceptionOverride {
+
+	private static final int H2_LOCK_TIMEOUT = 50200;
+
+	@java.lang.Override
+	public Override adjudicate(SQLException e) {
+		return e.getErrorCode() == H2_LOCK_TIMEOUT ? Override.DO_NOT_EVICT : Override.CONTINUE_EVICT;
+	}
+}
@@ -0,0 +1,85 @@
+package com.iftm.client.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.iftm.client.services.ClientCache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/*
+ * Métricas da aplicação, expostas em /actuator/prometheus:
+ * - client.service: tempo de cada método público do ClientService (tags method e exception);
+ * - client.repository: tempo de cada consulta do ClientRepository (inclusive as de ClientRepositoryImpl);
+ * - cache_* (cache=client): acertos, erros e despejos do ClientCache.
+ * As requisições HTTP (http.server.requests) e o pool do Hikari (hikaricp.*) são medidos pelo
+ * próprio Spring Boot. Os histogramas de percentis são ligados em application.properties
+ * (management.metrics.distribution.percentiles-histogram.*).
+ */
+@Configuration
+public class MetricsConfig {
+
+	@Bean
+	public MeterRegistryCustomizer<MeterRegistry> commonTags() {
+		return registry -> registry.config().commonTags("application", "dsclient");
+	}
+
+	@Bean
+	public MeterBinder clientCacheMetrics(ClientCache cache) {
+		return registry -> CaffeineCacheMetrics.monitor(registry, cache.getNativeCache(), "client");
+	}
+
+	@Bean
+	public ClientTimingAspect clientTimingAspect(MeterRegistry registry) {
+		return new ClientTimingAspect(registry);
+	}
+
+	@Aspect
+	public static class ClientTimingAspect {
+
+		private final MeterRegistry registry;
+
+		public ClientTimingAspect(MeterRegistry registry) {
+			this.registry = registry;
+		}
+
+		@Around("execution(public * com.iftm.client.services.ClientService.*(..))")
+		public Object timeService(ProceedingJoinPoint pjp) throws Throwable {
+			return time("client.service", pjp);
+		}
+
+		@Around("execution(* com.iftm.client.repositories.ClientRepository+.*(..))")
+		public Object timeRepository(ProceedingJoinPoint pjp) throws Throwable {
+			return time("client.repository", pjp);
+		}
+
+		/*
+		 * Métodos que devolvem Stream só são medidos até a abertura do cursor.
+		 */
+		private Object time(String name, ProceedingJoinPoint pjp) throws Throwable {
+			long start = System.nanoTime();
+			String exception = "none";
+			try {
+				return pjp.proceed();
+			} catch (Throwable e) {
+				exception = e.getClass().getSimpleName();
+				throw e;
+			} finally {
+				Timer.builder(name)
+						.tag("method", pjp.getSignature().getName())
+						.tag("exception", exception)
+						.register(registry)
+						.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+}
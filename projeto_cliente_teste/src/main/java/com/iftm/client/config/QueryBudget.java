@@ -0,0 +1,20 @@
+package com.iftm.client.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Máximo de comandos SQL que um método de controller pode executar (um lote JDBC conta como um).
+ * Acima disso a requisição gera um aviso no log (client.query-budget.mode=warn) ou falha
+ * (client.query-budget.mode=fail, usado nos testes). Ver SqlStatementsConfig.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+	int value();
+}
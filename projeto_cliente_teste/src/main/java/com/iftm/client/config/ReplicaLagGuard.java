@@ -0,0 +1,81 @@
+package com.iftm.client.config;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.iftm.client.services.ClientChangedEvent;
+
+/*
+ * Leitura das próprias escritas com réplicas atrasadas, só para quem escreveu:
+ * - depois do commit de uma escrita (ClientChangedEvent), as leituras da mesma thread (o resto da
+ *   requisição) vão ao primário, e a resposta leva o header X-Client-Write-Token com o instante da escrita;
+ * - uma requisição que devolve esse header lê do primário enquanto ele tiver menos de
+ *   client.datasource.replica-lag. As demais requisições continuam nas réplicas.
+ * replica-lag=0 desliga a proteção.
+ */
+public class ReplicaLagGuard extends OncePerRequestFilter {
+
+	public static final String WRITE_TOKEN_HEADER = "X-Client-Write-Token";
+
+	private final long windowMillis;
+	private final ThreadLocal<Long> lastWrite = new ThreadLocal<>();
+
+	public ReplicaLagGuard(Duration window) {
+		this.windowMillis = window.toMillis();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onClientChanged(ClientChangedEvent event) {
+		if (event.isRemote()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		lastWrite.set(now);
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes instanceof ServletRequestAttributes) {
+			HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+			if (response != null && !response.isCommitted()) {
+				response.setHeader(WRITE_TOKEN_HEADER, Long.toString(now));
+			}
+		}
+	}
+
+	public boolean recentWrite() {
+		Long written = lastWrite.get();
+		return windowMillis > 0 && written != null && System.currentTimeMillis() - written < windowMillis;
+	}
+
+	/*
+	 * Um token inválido é ignorado; um token no futuro vale como "agora", para não prender as
+	 * leituras do cliente no primário além da janela.
+	 */
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		lastWrite.remove();
+		String token = request.getHeader(WRITE_TOKEN_HEADER);
+		if (token != null) {
+			try {
+				lastWrite.set(Math.min(Long.parseLong(token.trim()), System.currentTimeMillis()));
+			} catch (NumberFormatException e) {
+				// sem leitura no primário
+			}
+		}
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			lastWrite.remove();
+		}
+	}
+}
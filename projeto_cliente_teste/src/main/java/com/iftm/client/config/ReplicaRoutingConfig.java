@@ -0,0 +1,64 @@
+package com.iftm.client.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Réplicas de leitura (client.datasource.routing.enabled=true). O primário continua configurado por
+ * spring.datasource.* e cada URL de client.datasource.replicas ganha um pool próprio, com as mesmas
+ * credenciais e spring.datasource.hikari.*. A escolha da réplica é round-robin ou least-connections
+ * (client.datasource.replica-selection); ver ClientRoutingDataSource e ReplicaLagGuard.
+ * Sem a propriedade, o DataSource padrão do Spring Boot é usado.
+ */
+@Configuration
+@ConditionalOnProperty(name = "client.datasource.routing.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+	@Bean
+	public ReplicaLagGuard replicaLagGuard(@Value("${client.datasource.replica-lag:PT1S}") Duration lag) {
+		return new ReplicaLagGuard(lag);
+	}
+
+	@Bean
+	public DataSource dataSource(DataSourceProperties properties, Environment environment, ReplicaLagGuard lagGuard,
+			ObjectProvider<MeterRegistry> registry,
+			@Value("${client.datasource.replicas}") List<String> urls,
+			@Value("${client.datasource.replica-selection:round-robin}") String selection) {
+		HikariDataSource primary = pool(properties, environment, properties.determineUrl(), "primary");
+		List<HikariDataSource> replicas = new ArrayList<>();
+		for (String url : urls) {
+			HikariDataSource replica = pool(properties, environment, url, "replica-" + (replicas.size() + 1));
+			replica.setReadOnly(true);
+			registry.ifAvailable(r -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+			replicas.add(replica);
+		}
+		ClientRoutingDataSource.Selection mode = ClientRoutingDataSource.Selection
+				.valueOf(selection.trim().toUpperCase().replace('-', '_'));
+		return new ClientRoutingDataSource(primary, replicas, mode, lagGuard).lazy();
+	}
+
+	static HikariDataSource pool(DataSourceProperties properties, Environment environment, String url, String name) {
+		HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+		pool.setPoolName(name);
+		return pool;
+	}
+}
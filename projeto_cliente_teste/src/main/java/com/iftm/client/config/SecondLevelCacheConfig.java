@@ -0,0 +1,77 @@
+package com.iftm.client.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientInvalidationChannel;
+
+/*
+ * Cache de segundo nível do Hibernate (JCache com Caffeine). As regiões são criadas aqui, cada uma
+ * com TTL e tamanho máximo próprios (client.l2-cache.*), e o Hibernate usa este CacheManager
+ * (hibernate.javax.cache.missing_cache_strategy=fail: uma região não criada aqui é erro na subida):
+ * - Client.CACHE_REGION: entidades Client;
+ * - ClientRepository.QUERY_CACHE_REGION: resultados das consultas marcadas como cacheáveis;
+ * - default-query-results-region / default-update-timestamps-region: regiões padrão do Hibernate.
+ *   A de timestamps não expira nem tem limite, senão uma consulta em cache poderia sobreviver a uma escrita.
+ * Cada contexto tem seu próprio CacheManager (URI única), fechado junto com ele.
+ *
+ * Com client.invalidation.enabled=true as escritas são avisadas às outras instâncias pelo
+ * ClientInvalidationChannel (ver ClientCacheInvalidator).
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+	@Bean(destroyMethod = "close")
+	public CacheManager hibernateCacheManager(
+			@Value("${client.l2-cache.entity-ttl:PT10M}") Duration entityTtl,
+			@Value("${client.l2-cache.entity-maximum-size:10000}") long entityMaximumSize,
+			@Value("${client.l2-cache.query-ttl:PT1M}") Duration queryTtl,
+			@Value("${client.l2-cache.query-maximum-size:1000}") long queryMaximumSize) {
+		CacheManager manager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(URI.create("client-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+		manager.createCache(Client.CACHE_REGION, region(entityTtl, entityMaximumSize));
+		manager.createCache(ClientRepository.QUERY_CACHE_REGION, region(queryTtl, queryMaximumSize));
+		manager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, region(queryTtl, queryMaximumSize));
+		manager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+		return manager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+		return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+	}
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "client.invalidation.enabled", havingValue = "true")
+	public ClientInvalidationChannel clientInvalidationChannel(
+			@Value("${client.invalidation.group:239.255.42.99}") String group,
+			@Value("${client.invalidation.port:45588}") int port,
+			@Value("${client.invalidation.interface:}") String networkInterface) {
+		return new ClientInvalidationChannel(group, port, networkInterface);
+	}
+
+	private static CaffeineConfiguration<Object, Object> region(Duration ttl, long maximumSize) {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setMaximumSize(OptionalLong.of(maximumSize));
+		configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+		configuration.setStatisticsEnabled(true);
+		return configuration;
+	}
+}
@@ -0,0 +1,75 @@
+package com.iftm.client.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.iftm.client.repositories.sharding.ShardStrategy;
+import com.iftm.client.repositories.sharding.ShardedClientRepository;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*
+ * Clientes particionados em shards (client.sharding.enabled=true): cada URL de client.sharding.urls
+ * é um shard, com pool próprio (credenciais e spring.datasource.hikari.* do DataSource principal).
+ * client.sharding.strategy: hash-cpf ou id-range (com client.sharding.id-range-size ids por shard).
+ * O scatter-gather roda num pool de client.sharding.threads threads; por padrão, a soma dos
+ * maximumPoolSize dos shards, para que cada conexão possa atender uma consulta ao mesmo tempo.
+ * A fila e as threads ativas do pool saem nas métricas executor.* com name=client.sharding.
+ * Os comandos dos shards passam pelo datasource-proxy como os do DataSource principal (SqlStatementsConfig).
+ */
+@Configuration
+@ConditionalOnProperty(name = "client.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+	@Bean
+	public ShardedClientRepository shardedClientRepository(DataSourceProperties properties, Environment environment,
+			@Value("${client.sharding.urls}") List<String> urls,
+			@Value("${client.sharding.strategy:hash-cpf}") String strategy,
+			@Value("${client.sharding.id-range-size:10000000}") long idRangeSize,
+			@Value("${client.sharding.threads:0}") int threads,
+			@Value("${client.sql.slow-query-threshold:PT0.2S}") Duration slowQueryThreshold,
+			ObjectProvider<MeterRegistry> registry) {
+		List<JdbcTemplate> shards = new ArrayList<>();
+		int connections = 0;
+		for (String url : urls) {
+			HikariDataSource pool = ReplicaRoutingConfig.pool(properties, environment, url, "shard-" + shards.size());
+			pool.validate(); // completa os padrões do Hikari, como maximumPoolSize
+			connections += pool.getMaximumPoolSize();
+			shards.add(new JdbcTemplate(SqlStatementsConfig.proxy("shard-" + shards.size(), pool, slowQueryThreshold)));
+		}
+		AtomicInteger count = new AtomicInteger();
+		int size = threads > 0 ? threads : connections;
+		// as consultas de cada shard contam nos comandos da requisição que as disparou
+		ExecutorService executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread thread = new Thread(r, "client-shard-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}) {
+			@Override
+			public void execute(Runnable command) {
+				super.execute(SqlStatementsConfig.propagate(command));
+			}
+		};
+		registry.ifAvailable(r -> new ExecutorServiceMetrics(executor, "client.sharding", Tags.empty()).bindTo(r));
+		ShardStrategy mode = ShardStrategy.valueOf(strategy.trim().toUpperCase().replace('-', '_'));
+		return new ShardedClientRepository(shards, mode, idRangeSize, executor);
+	}
+}
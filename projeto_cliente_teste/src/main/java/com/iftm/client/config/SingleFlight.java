@@ -0,0 +1,18 @@
+package com.iftm.client.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Chamadas simultâneas de um método de leitura com os mesmos argumentos (inclusive o PageRequest)
+ * dividem uma única execução e o seu resultado. Não é cache: terminada a execução, a próxima
+ * chamada vai ao banco de novo. Ver SingleFlightConfig.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+}
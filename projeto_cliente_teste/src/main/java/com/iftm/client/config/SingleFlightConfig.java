@@ -0,0 +1,84 @@
+package com.iftm.client.config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*
+ * Single-flight dos métodos com @SingleFlight (client.single-flight.enabled, ligado por padrão).
+ * A primeira chamada com uma chave (método + argumentos) executa o método; as que chegam enquanto
+ * ela roda esperam e recebem o mesmo resultado (ou a mesma exceção).
+ * O aspecto roda antes do @Transactional, então quem espera não segura transação nem conexão.
+ * Métrica client.single-flight (tags method e result=executed|collapsed).
+ */
+@Configuration
+@ConditionalOnProperty(name = "client.single-flight.enabled", havingValue = "true", matchIfMissing = true)
+public class SingleFlightConfig {
+
+	@Bean
+	public SingleFlightAspect singleFlightAspect(MeterRegistry registry) {
+		return new SingleFlightAspect(registry);
+	}
+
+	@Aspect
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	public static class SingleFlightAspect {
+
+		private final MeterRegistry registry;
+		private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+		public SingleFlightAspect(MeterRegistry registry) {
+			this.registry = registry;
+		}
+
+		@Around("@annotation(com.iftm.client.config.SingleFlight)")
+		public Object collapse(ProceedingJoinPoint pjp) throws Throwable {
+			String method = pjp.getSignature().toShortString();
+			List<Object> key = Arrays.asList(pjp.getSignature().toLongString(), Arrays.asList(pjp.getArgs()));
+			CompletableFuture<Object> call = new CompletableFuture<>();
+			CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+			if (running != null) {
+				counter(method, "collapsed").increment();
+				try {
+					return running.join();
+				} catch (CompletionException e) {
+					throw e.getCause();
+				}
+			}
+			counter(method, "executed").increment();
+			try {
+				Object result = pjp.proceed();
+				call.complete(result);
+				return result;
+			} catch (Throwable e) {
+				call.completeExceptionally(e);
+				throw e;
+			} finally {
+				inFlight.remove(key, call);
+			}
+		}
+
+		private Counter counter(String method, String result) {
+			return Counter.builder("client.single-flight")
+					.description("Calls to @SingleFlight methods, executed or collapsed into a call in flight")
+					.tag("method", method)
+					.tag("result", result)
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package com.iftm.client.config;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.iftm.client.services.ClientService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/*
+ * O DataSource é envolvido pelo datasource-proxy, que vê cada comando SQL executado:
+ * - comandos que levam client.sql.slow-query-threshold ou mais são logados (logger
+ *   com.iftm.client.sql.slow) com os parâmetros e o método do ClientService que os originou;
+ * - cada thread conta os comandos executados. Por requisição HTTP a contagem vai para a métrica
+ *   client.request.statements (tags method e uri), e nos métodos com @QueryBudget ela é comparada
+ *   com o limite declarado.
+ * Substitui o spring.jpa.show-sql, que imprimia todos os comandos sem tempo nem contagem.
+ */
+@Configuration
+public class SqlStatementsConfig implements WebMvcConfigurer {
+
+	private static final Logger slowLog = LoggerFactory.getLogger("com.iftm.client.sql.slow");
+	private static final Logger log = LoggerFactory.getLogger(SqlStatementsConfig.class);
+	private static final String COUNTER_ATTRIBUTE = SqlStatementsConfig.class.getName() + ".counter";
+	private static final String PREVIOUS_ATTRIBUTE = SqlStatementsConfig.class.getName() + ".previous";
+
+	// contador da requisição em andamento na thread ou, fora de requisição, o da própria thread
+	private static final ThreadLocal<AtomicLong> STATEMENTS = ThreadLocal.withInitial(AtomicLong::new);
+	private static final DefaultQueryLogEntryCreator ENTRIES = new DefaultQueryLogEntryCreator();
+
+	@Autowired
+	private MeterRegistry registry;
+
+	public static long statements() {
+		return STATEMENTS.get().get();
+	}
+
+	public static AtomicLong counter() {
+		return STATEMENTS.get();
+	}
+
+	/*
+	 * task contará os seus comandos no contador de quem a criou, em qualquer thread em que rodar.
+	 */
+	public static Runnable propagate(Runnable task) {
+		AtomicLong counter = STATEMENTS.get();
+		return () -> {
+			AtomicLong previous = STATEMENTS.get();
+			STATEMENTS.set(counter);
+			try {
+				task.run();
+			} finally {
+				STATEMENTS.set(previous);
+			}
+		};
+	}
+
+	/*
+	 * Aplicado pelo Spring Boot ao applicationTaskExecutor, que roda os StreamingResponseBody.
+	 */
+	@Bean
+	public static TaskDecorator statementsTaskDecorator() {
+		return SqlStatementsConfig::propagate;
+	}
+
+	@Bean
+	public static BeanPostProcessor dataSourceProxy(@Value("${client.sql.slow-query-threshold:PT0.2S}") Duration threshold) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource ? proxy(beanName, (DataSource) bean, threshold) : bean;
+			}
+		};
+	}
+
+	/*
+	 * Para os DataSources que não são beans (os pools dos shards).
+	 */
+	public static DataSource proxy(String name, DataSource dataSource, Duration threshold) {
+		long thresholdMillis = threshold.toMillis();
+		return ProxyDataSourceBuilder.create(name, dataSource)
+				.afterQuery((info, queries) -> afterQuery(info, queries, thresholdMillis))
+				.build();
+	}
+
+	@Bean
+	public QueryBudgetAspect queryBudgetAspect(@Value("${client.query-budget.mode:warn}") String mode) {
+		return new QueryBudgetAspect("fail".equalsIgnoreCase(mode));
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry interceptors) {
+		interceptors.addInterceptor(new AsyncHandlerInterceptor() {
+			/*
+			 * Chamado de novo no despacho que termina uma requisição assíncrona: o contador é o mesmo.
+			 */
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				AtomicLong counter = (AtomicLong) request.getAttribute(COUNTER_ATTRIBUTE);
+				if (counter == null) {
+					counter = new AtomicLong();
+					request.setAttribute(COUNTER_ATTRIBUTE, counter);
+				}
+				request.setAttribute(PREVIOUS_ATTRIBUTE, STATEMENTS.get());
+				STATEMENTS.set(counter);
+				return true;
+			}
+
+			@Override
+			public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+					Object handler) {
+				STATEMENTS.set((AtomicLong) request.getAttribute(PREVIOUS_ATTRIBUTE));
+			}
+
+			@Override
+			public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+				AtomicLong counter = (AtomicLong) request.getAttribute(COUNTER_ATTRIBUTE);
+				STATEMENTS.set((AtomicLong) request.getAttribute(PREVIOUS_ATTRIBUTE));
+				Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+				DistributionSummary.builder("client.request.statements")
+						.description("SQL statements executed per HTTP request")
+						.tag("method", request.getMethod())
+						.tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+						.register(registry)
+						.record(counter.get());
+			}
+		});
+	}
+
+	private static void afterQuery(ExecutionInfo info, List<QueryInfo> queries, long thresholdMillis) {
+		STATEMENTS.get().incrementAndGet();
+		if (info.getElapsedTime() >= thresholdMillis && slowLog.isWarnEnabled()) {
+			slowLog.warn("Slow query from {}: {}", origin(), ENTRIES.getLogEntry(info, queries, true, true));
+		}
+	}
+
+	/*
+	 * Método do ClientService mais externo na pilha (a operação que originou o comando) ou,
+	 * sem ClientService, o primeiro método da aplicação fora deste pacote.
+	 */
+	private static String origin() {
+		return StackWalker.getInstance().walk(frames -> {
+			String service = null;
+			String application = null;
+			for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+				String className = frame.getClassName();
+				if (className.equals(ClientService.class.getName())) {
+					service = "ClientService." + frame.getMethodName();
+				} else if (application == null && className.startsWith("com.iftm.client.")
+						&& !className.startsWith(SqlStatementsConfig.class.getPackageName())) {
+					application = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+				}
+			}
+			return Optional.ofNullable(service).orElse(application == null ? "unknown" : application);
+		});
+	}
+
+	/*
+	 * Em client.query-budget.mode=fail só as leituras (GET) falham acima do limite: nas escritas o
+	 * service já fez o commit quando a contagem é conferida, então elas só geram o aviso.
+	 */
+	@Aspect
+	public static class QueryBudgetAspect {
+
+		private final boolean fail;
+
+		public QueryBudgetAspect(boolean fail) {
+			this.fail = fail;
+		}
+
+		@Around("@annotation(budget)")
+		public Object check(ProceedingJoinPoint pjp, QueryBudget budget) throws Throwable {
+			long start = statements();
+			Object result = pjp.proceed();
+			long used = statements() - start;
+			if (used > budget.value()) {
+				String message = pjp.getSignature().toShortString() + " executed " + used
+						+ " SQL statements (budget " + budget.value() + ")";
+				if (fail && isRead(((MethodSignature) pjp.getSignature()).getMethod())) {
+					throw new IllegalStateException(message);
+				}
+				log.warn(message);
+			}
+			return result;
+		}
+
+		private static boolean isRead(Method method) {
+			RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+			return mapping != null && Arrays.equals(mapping.method(), new RequestMethod[] { RequestMethod.GET });
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.iftm.client.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Com client.virtual-threads.enabled=true (profile virtual-threads), o Tomcat atende cada
+ * requisição em uma virtual thread em vez do pool de server.tomcat.threads.max threads.
+ * Executors.newVirtualThreadPerTaskExecutor só existe a partir do Java 21, por isso é chamado
+ * por reflexão: o código continua compilando para Java 11 (o Spring 5.3 desta versão do Boot não
+ * lê classes de Java 21) e, rodando em um JDK anterior, o Tomcat fica com o pool padrão.
+ *
+ * Com virtual threads o limite passa a ser o pool de conexões do Hikari
+ * (spring.datasource.hikari.maximum-pool-size): as requisições esperam por conexão sem ocupar threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "client.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadsConfig implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+	@Override
+	public void customize(TomcatServletWebServerFactory factory) {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor();
+		if (executor == null) {
+			log.warn("client.virtual-threads.enabled=true, but Java {} has no virtual threads; keeping the Tomcat thread pool",
+					Runtime.version().feature());
+			return;
+		}
+		factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(executor));
+		log.info("Tomcat requests will run on virtual threads");
+	}
+
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
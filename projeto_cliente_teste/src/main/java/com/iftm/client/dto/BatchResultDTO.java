@@ -0,0 +1,78 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+
+/*
+ * Resultado de uma linha de uma operação em lote (inserção ou alteração de income).
+ * index é a posição da linha na entrada (começando em 0); numa inserção, id é nulo quando a linha falhou.
+ */
+public class BatchResultDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public enum Status {
+		CREATED, UPDATED, FAILED
+	}
+
+	private int index;
+	private Long id;
+	private Status status;
+	private String message;
+
+	public BatchResultDTO() {
+	}
+
+	public BatchResultDTO(int index, Long id, Status status, String message) {
+		this.index = index;
+		this.id = id;
+		this.status = status;
+		this.message = message;
+	}
+
+	public static BatchResultDTO created(int index, Long id) {
+		return new BatchResultDTO(index, id, Status.CREATED, null);
+	}
+
+	public static BatchResultDTO updated(int index, Long id) {
+		return new BatchResultDTO(index, id, Status.UPDATED, null);
+	}
+
+	public static BatchResultDTO failed(int index, String message) {
+		return new BatchResultDTO(index, null, Status.FAILED, message);
+	}
+
+	public static BatchResultDTO failed(int index, Long id, String message) {
+		return new BatchResultDTO(index, id, Status.FAILED, message);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+}
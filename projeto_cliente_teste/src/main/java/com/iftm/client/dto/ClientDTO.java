@@ -14,6 +14,7 @@ public class ClientDTO implements Serializable {
 	private Double income;
 	private Instant birthDate;
 	private Integer children;
+	private Long version;
 	
 	public ClientDTO() {
 	}
@@ -26,6 +27,11 @@ public class ClientDTO implements Serializable {
 		this.birthDate = birthDate;
 		this.children = children;
 	}
+
+	public ClientDTO(Long id, String name, String cpf, Double income, Instant birthDate, Integer children, Long version) {
+		this(id, name, cpf, income, birthDate, children);
+		this.version = version;
+	}
 	
 	public ClientDTO(Client entity) {
 		this.id = entity.getId();
@@ -34,6 +40,7 @@ public class ClientDTO implements Serializable {
 		this.income = entity.getIncome();
 		this.birthDate = entity.getBirthDate();
 		this.children = entity.getChildren();
+		this.version = entity.getVersion();
 	}
 
 	public Long getId() {
@@ -84,6 +91,17 @@ public class ClientDTO implements Serializable {
 		this.children = children;
 	}
 	
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
+	/*
+	 * A versão não é copiada: ela é controlada pelo Hibernate a partir do valor lido do banco.
+	 */
 	public Client toEntity() {
 		return new Client(id, name, cpf, income, birthDate, children);
 	}
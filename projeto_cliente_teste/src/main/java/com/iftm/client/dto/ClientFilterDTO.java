@@ -0,0 +1,85 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/*
+ * Filtros de GET /clients/search. Todos são opcionais e combinados com "e"; os intervalos
+ * incluem os limites e os prefixos diferenciam maiúsculas (para usar os índices de name e cpf).
+ */
+public class ClientFilterDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Double minIncome;
+	private Double maxIncome;
+	private Integer minChildren;
+	private Integer maxChildren;
+	private Instant bornFrom;
+	private Instant bornTo;
+	private String namePrefix;
+	private String cpfPrefix;
+
+	public Double getMinIncome() {
+		return minIncome;
+	}
+
+	public void setMinIncome(Double minIncome) {
+		this.minIncome = minIncome;
+	}
+
+	public Double getMaxIncome() {
+		return maxIncome;
+	}
+
+	public void setMaxIncome(Double maxIncome) {
+		this.maxIncome = maxIncome;
+	}
+
+	public Integer getMinChildren() {
+		return minChildren;
+	}
+
+	public void setMinChildren(Integer minChildren) {
+		this.minChildren = minChildren;
+	}
+
+	public Integer getMaxChildren() {
+		return maxChildren;
+	}
+
+	public void setMaxChildren(Integer maxChildren) {
+		this.maxChildren = maxChildren;
+	}
+
+	public Instant getBornFrom() {
+		return bornFrom;
+	}
+
+	public void setBornFrom(Instant bornFrom) {
+		this.bornFrom = bornFrom;
+	}
+
+	public Instant getBornTo() {
+		return bornTo;
+	}
+
+	public void setBornTo(Instant bornTo) {
+		this.bornTo = bornTo;
+	}
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public void setNamePrefix(String namePrefix) {
+		this.namePrefix = namePrefix;
+	}
+
+	public String getCpfPrefix() {
+		return cpfPrefix;
+	}
+
+	public void setCpfPrefix(String cpfPrefix) {
+		this.cpfPrefix = cpfPrefix;
+	}
+}
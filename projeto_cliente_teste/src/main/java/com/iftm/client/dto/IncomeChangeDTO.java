@@ -0,0 +1,37 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+
+/*
+ * Uma linha do PATCH /clients/income: novo income de um cliente.
+ */
+public class IncomeChangeDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Long id;
+	private Double income;
+
+	public IncomeChangeDTO() {
+	}
+
+	public IncomeChangeDTO(Long id, Double income) {
+		this.id = id;
+		this.income = income;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Double getIncome() {
+		return income;
+	}
+
+	public void setIncome(Double income) {
+		this.income = income;
+	}
+}
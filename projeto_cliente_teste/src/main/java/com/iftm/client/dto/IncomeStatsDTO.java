@@ -0,0 +1,135 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Estatísticas de income calculadas no banco (GET /clients/stats/income).
+ * count/sum/mean/min/max vêm de um único select de agregação; histogram e percentiles
+ * vêm de consultas GROUP BY por faixa de income. Clientes sem income não entram na conta.
+ */
+public class IncomeStatsDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long count;
+	private Double sum;
+	private Double mean;
+	private Double min;
+	private Double max;
+	private List<Bucket> histogram = new ArrayList<>();
+	private Map<String, Double> percentiles = new LinkedHashMap<>();
+
+	public IncomeStatsDTO() {
+	}
+
+	public IncomeStatsDTO(Long count, Double sum, Double mean, Double min, Double max) {
+		this.count = count == null ? 0L : count;
+		this.sum = sum;
+		this.mean = mean;
+		this.min = min;
+		this.max = max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public Double getSum() {
+		return sum;
+	}
+
+	public void setSum(Double sum) {
+		this.sum = sum;
+	}
+
+	public Double getMean() {
+		return mean;
+	}
+
+	public void setMean(Double mean) {
+		this.mean = mean;
+	}
+
+	public Double getMin() {
+		return min;
+	}
+
+	public void setMin(Double min) {
+		this.min = min;
+	}
+
+	public Double getMax() {
+		return max;
+	}
+
+	public void setMax(Double max) {
+		this.max = max;
+	}
+
+	public List<Bucket> getHistogram() {
+		return histogram;
+	}
+
+	public void setHistogram(List<Bucket> histogram) {
+		this.histogram = histogram;
+	}
+
+	public Map<String, Double> getPercentiles() {
+		return percentiles;
+	}
+
+	public void setPercentiles(Map<String, Double> percentiles) {
+		this.percentiles = percentiles;
+	}
+
+	/*
+	 * Faixa [from, to) do histograma; a última faixa inclui o max.
+	 */
+	public static class Bucket implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private double from;
+		private double to;
+		private long count;
+
+		public Bucket() {
+		}
+
+		public Bucket(double from, double to, long count) {
+			this.from = from;
+			this.to = to;
+			this.count = count;
+		}
+
+		public double getFrom() {
+			return from;
+		}
+
+		public void setFrom(double from) {
+			this.from = from;
+		}
+
+		public double getTo() {
+			return to;
+		}
+
+		public void setTo(double to) {
+			this.to = to;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public void setCount(long count) {
+			this.count = count;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/*
+ * Situação de um job: processed/total indicam o progresso (no PURGE o total é uma estimativa
+ * feita ao começar). result só é preenchido ao terminar: a lista de BatchResultDTO no IMPORT
+ * e um PurgeResultDTO no PURGE. Um job cancelado guarda o resultado do que foi feito até parar.
+ */
+public class JobDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		IMPORT, PURGE
+	}
+
+	public enum Status {
+		QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+	}
+
+	private String id;
+	private Type type;
+	private Status status;
+	private long total;
+	private long processed;
+	private Instant createdAt;
+	private Instant startedAt;
+	private Instant finishedAt;
+	private Object result;
+	private String error;
+
+	public JobDTO() {
+	}
+
+	public JobDTO(String id, Type type, Status status, long total, long processed, Instant createdAt,
+			Instant startedAt, Instant finishedAt, Object result, String error) {
+		this.id = id;
+		this.type = type;
+		this.status = status;
+		this.total = total;
+		this.processed = processed;
+		this.createdAt = createdAt;
+		this.startedAt = startedAt;
+		this.finishedAt = finishedAt;
+		this.result = result;
+		this.error = error;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public void setType(Type type) {
+		this.type = type;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	public void setProcessed(long processed) {
+		this.processed = processed;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public void setStartedAt(Instant startedAt) {
+		this.startedAt = startedAt;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+
+	public void setFinishedAt(Instant finishedAt) {
+		this.finishedAt = finishedAt;
+	}
+
+	public Object getResult() {
+		return result;
+	}
+
+	public void setResult(Object result) {
+		this.result = result;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,49 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*
+ * Pedido de job (POST /clients/jobs).
+ * IMPORT usa clients; PURGE usa incomeGreaterThan.
+ */
+public class JobRequestDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private JobDTO.Type type;
+	private Double incomeGreaterThan;
+	private List<ClientDTO> clients;
+
+	public JobRequestDTO() {
+	}
+
+	public JobRequestDTO(JobDTO.Type type, Double incomeGreaterThan, List<ClientDTO> clients) {
+		this.type = type;
+		this.incomeGreaterThan = incomeGreaterThan;
+		this.clients = clients;
+	}
+
+	public JobDTO.Type getType() {
+		return type;
+	}
+
+	public void setType(JobDTO.Type type) {
+		this.type = type;
+	}
+
+	public Double getIncomeGreaterThan() {
+		return incomeGreaterThan;
+	}
+
+	public void setIncomeGreaterThan(Double incomeGreaterThan) {
+		this.incomeGreaterThan = incomeGreaterThan;
+	}
+
+	public List<ClientDTO> getClients() {
+		return clients;
+	}
+
+	public void setClients(List<ClientDTO> clients) {
+		this.clients = clients;
+	}
+}
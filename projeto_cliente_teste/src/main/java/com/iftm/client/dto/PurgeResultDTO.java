@@ -0,0 +1,48 @@
+package com.iftm.client.dto;
+
+import java.io.Serializable;
+
+/*
+ * Resultado de uma remoção em blocos: linhas apagadas, quantidade de blocos
+ * (uma transação por bloco) e tempo total em milissegundos.
+ */
+public class PurgeResultDTO implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private long deleted;
+	private int chunks;
+	private long elapsedMillis;
+
+	public PurgeResultDTO() {
+	}
+
+	public PurgeResultDTO(long deleted, int chunks, long elapsedMillis) {
+		this.deleted = deleted;
+		this.chunks = chunks;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(long deleted) {
+		this.deleted = deleted;
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public void setChunks(int chunks) {
+		this.chunks = chunks;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public void setElapsedMillis(long elapsedMillis) {
+		this.elapsedMillis = elapsedMillis;
+	}
+}
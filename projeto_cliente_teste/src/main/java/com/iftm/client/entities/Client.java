@@ -3,19 +3,50 @@ package com.iftm.client.entities;
 import java.io.Serializable;
 import java.time.Instant;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
-
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+/*
+ * @DynamicUpdate: o UPDATE gerado leva só as colunas alteradas (e a versão), em vez de todas.
+ * @Cache: entidades no cache de segundo nível (região CACHE_REGION, ver SecondLevelCacheConfig).
+ * Índices: um (campo, id) por campo de ordenação da paginação por keyset (ClientSeek.SORTABLE_FIELDS),
+ * que também atendem às buscas por income, cpf e name (o de cpf é o único, e o de id é a chave primária).
+ * As páginas DESC usam os mesmos índices, percorridos de trás para frente pelo banco.
+ */
 @Entity
-@Table(name = "tb_client")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Client.CACHE_REGION)
+@Table(name = "tb_client", indexes = {
+		@Index(name = "uk_client_cpf", columnList = "cpf", unique = true),
+		@Index(name = "idx_client_name_id", columnList = "name, id"),
+		@Index(name = "idx_client_income_id", columnList = "income, id"),
+		@Index(name = "idx_client_birth_date_id", columnList = "birthDate, id"),
+		@Index(name = "idx_client_children_id", columnList = "children, id") })
 public class Client implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
+	public static final String CACHE_REGION = "client";
+	
+	/*
+	 * Sequence com otimizador pooled (allocationSize): o Hibernate reserva 50 ids por ida ao banco
+	 * e consegue agrupar os INSERTs em lotes JDBC, o que não acontece com IDENTITY.
+	 * Os ids abaixo de 100 ficam para os dados de import.sql.
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+	@SequenceGenerator(name = "client_seq", sequenceName = "seq_client", initialValue = 100, allocationSize = 50)
 	private Long id;
 	private String name;
 	private String cpf;
@@ -23,6 +54,13 @@ public class Client implements Serializable {
 	private Instant birthDate;
 	private Integer children;
 	
+	/*
+	 * Controle de concorrência otimista: o UPDATE só é aplicado se a versão no banco ainda é a
+	 * que foi lida, e cada alteração incrementa a versão (que também compõe o ETag do cliente).
+	 */
+	@Version
+	private Long version;
+	
 	public Client() {
 	}
 
@@ -83,6 +121,14 @@ public class Client implements Serializable {
 		this.children = children;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,26 @@
+package com.iftm.client.repositories;
+
+/*
+ * Tabela de letras acentuadas e das suas versões sem acento, usada do mesmo jeito pelo banco
+ * (TRANSLATE na busca por nome) e pelo ClientSearchIndex (strip), para que a busca por nome
+ * ignore acentos com ou sem o índice em memória.
+ */
+public final class Accents {
+
+	public static final String ACCENTED = "ÀÁÂÃÄÅÇÈÉÊËÌÍÎÏÑÒÓÔÕÖÙÚÛÜÝàáâãäåçèéêëìíîïñòóôõöùúûüýÿ";
+	public static final String PLAIN = "AAAAAACEEEEIIIINOOOOOUUUUYaaaaaaceeeeiiiinooooouuuuyy";
+
+	private Accents() {
+	}
+
+	public static String strip(String text) {
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			int index = ACCENTED.indexOf(chars[i]);
+			if (index >= 0) {
+				chars[i] = PLAIN.charAt(index);
+			}
+		}
+		return new String(chars);
+	}
+}
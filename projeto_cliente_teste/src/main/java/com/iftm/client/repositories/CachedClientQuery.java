@@ -0,0 +1,23 @@
+package com.iftm.client.repositories;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.QueryHints;
+
+/*
+ * Guarda o resultado da consulta no query cache, na região ClientRepository.QUERY_CACHE_REGION.
+ * O Spring Data lê o @QueryHints por meta-anotação.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@QueryHints(value = { @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+		@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = ClientRepository.QUERY_CACHE_REGION) })
+public @interface CachedClientQuery {
+}
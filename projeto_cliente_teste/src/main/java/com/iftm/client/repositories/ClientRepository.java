@@ -1,26 +1,61 @@
 package com.iftm.client.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
 import com.iftm.client.entities.Client;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientRepositoryCustom {
+	
+	String SELECT_DTO = "select new com.iftm.client.dto.ClientDTO(c.id, c.name, c.cpf, c.income, c.birthDate, c.children, c.version) from Client c";
+	
+	/*
+	 * Região do query cache (ver SecondLevelCacheConfig) das consultas de leitura marcadas com
+	 * @CachedClientQuery: listagens, buscas por income/cpf, totais e o resumo de income. O Hibernate
+	 * descarta os resultados quando ele mesmo escreve em tb_client; as escritas por JDBC são
+	 * tratadas pelo ClientCacheInvalidator. Buscas por lista de ids e por nome não entram (variam demais).
+	 */
+	String QUERY_CACHE_REGION = "client-queries";
+	
+	String NAME_WITHOUT_ACCENTS = "function('TRANSLATE', c.name, '" + Accents.ACCENTED + "', '" + Accents.PLAIN + "')";
+	
 	/*
 	 * Métodos propostos nas atividades de JUNIT
 	 */
 
-	void deleteByCpf(String cpfExistente);
+	/*
+	 * Deletes em um único comando (set-based): os derivados deleteBy... carregavam cada entidade
+	 * e executavam um DELETE por linha. Retornam a quantidade de linhas apagadas.
+	 */
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from Client c where c.cpf = :cpf")
+	int deleteByCpf(@Param("cpf") String cpfExistente);
 
 	Optional<Client> findByCpf(String string);	
 
-	void deleteByIncomeGreaterThan(double salarioI);
+	@Transactional
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from Client c where c.income > :income")
+	int deleteByIncomeGreaterThan(@Param("income") double salarioI);
 
 	List<Client> findByIncomeGreaterThan(double salarioI);
 
@@ -33,9 +68,128 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
 	 * Elas também deveriam ser testadas no ClientRepositorTest
 	 * É possível converter uma list em uma Page, mas é bem complexo.
 	 */
+	@CachedClientQuery
 	Page<Client> findByIncome(Double income, Pageable pageable);
+	@CachedClientQuery
 	Page<Client> findByIncomeGreaterThan(double salarioI, Pageable pageable);
 	Page<Client> findByCpfLike(String parteCpf, Pageable pageable);
 	Page<Client> findByCpfStartingWith(String parteCpf, Pageable pageable);
 	
+	/*
+	 * Consultas de leitura que montam o ClientDTO direto no select (constructor expression):
+	 * não há entidade gerenciada, então o Hibernate não guarda snapshot para dirty-checking.
+	 */
+	@CachedClientQuery
+	@Query(value = SELECT_DTO, countQuery = "select count(c) from Client c")
+	Page<ClientDTO> findAllDto(Pageable pageable);
+	
+	/*
+	 * Sem query cache: as leituras por id já passam pelo ClientCache.
+	 */
+	@Transactional(readOnly = true)
+	@Query(SELECT_DTO + " where c.id = :id")
+	Optional<ClientDTO> findDtoById(@Param("id") Long id);
+	
+	@CachedClientQuery
+	@Query(value = SELECT_DTO + " where c.income = :income",
+			countQuery = "select count(c) from Client c where c.income = :income")
+	Page<ClientDTO> findDtoByIncome(@Param("income") Double income, Pageable pageable);
+	
+	/*
+	 * Chamado fora de transação pelo ClientService (quando a cópia colunar não está em uso):
+	 * abre a sua, somente leitura, como incomeSummary, incomeHistogram e findDtoAll.
+	 */
+	@Transactional(readOnly = true)
+	@CachedClientQuery
+	@Query(value = SELECT_DTO + " where c.income > :income",
+			countQuery = "select count(c) from Client c where c.income > :income")
+	Page<ClientDTO> findDtoByIncomeGreaterThan(@Param("income") double salarioI, Pageable pageable);
+	
+	@CachedClientQuery
+	@Query(value = SELECT_DTO + " where c.cpf like :cpf escape '\\'",
+			countQuery = "select count(c) from Client c where c.cpf like :cpf escape '\\'")
+	Page<ClientDTO> findDtoByCpfLike(@Param("cpf") String parteCpf, Pageable pageable);
+	
+	/*
+	 * Usados pela busca por cpf/nome: pelo índice em memória (ids) ou, sem ele, direto no banco.
+	 * Os padrões de LIKE destas consultas (e das *CpfLike abaixo) usam a barra invertida como escape: ver LikePatterns.
+	 */
+	@Query(value = SELECT_DTO + " where c.id in :ids",
+			countQuery = "select count(c) from Client c where c.id in :ids")
+	Page<ClientDTO> findByIdIn(@Param("ids") Collection<Long> ids, Pageable pageable);
+	
+	@Query(SELECT_DTO + " where c.id in :ids")
+	List<ClientDTO> findByIdIn(@Param("ids") Collection<Long> ids);
+	
+	/*
+	 * Nome sem diferenciar maiúsculas nem acentos (Accents), como no ClientSearchIndex:
+	 * o padrão também precisa vir sem acentos.
+	 */
+	@Query(value = SELECT_DTO + " where upper(" + NAME_WITHOUT_ACCENTS + ") like upper(:name) escape '\\'",
+			countQuery = "select count(c) from Client c where upper(" + NAME_WITHOUT_ACCENTS + ") like upper(:name) escape '\\'")
+	Page<ClientDTO> findByNameLikeIgnoreCase(@Param("name") String pattern, Pageable pageable);
+	
+	/*
+	 * Versões sem COUNT(*): uma Slice busca size + 1 linhas para saber se há próxima página.
+	 */
+	@CachedClientQuery
+	@Query(SELECT_DTO)
+	Slice<ClientDTO> findSliceBy(Pageable pageable);
+	
+	@CachedClientQuery
+	@Query(SELECT_DTO + " where c.income = :income")
+	Slice<ClientDTO> findSliceByIncome(@Param("income") Double income, Pageable pageable);
+	
+	@CachedClientQuery
+	@Query(SELECT_DTO + " where c.income > :income")
+	Slice<ClientDTO> findSliceByIncomeGreaterThan(@Param("income") double salarioI, Pageable pageable);
+	
+	@CachedClientQuery
+	@Query(SELECT_DTO + " where c.cpf like :cpf escape '\\'")
+	Slice<ClientDTO> findSliceByCpfLike(@Param("cpf") String parteCpf, Pageable pageable);
+	
+	@CachedClientQuery
+	long countByIncome(Double income);
+	@CachedClientQuery
+	long countByIncomeGreaterThan(double salarioI);
+	@CachedClientQuery
+	@Query("select count(c) from Client c where c.cpf like :cpf escape '\\'")
+	long countByCpfLike(@Param("cpf") String parteCpf);
+	
+	/*
+	 * Usados pela remoção em blocos (ClientService.purgeByIncomeGreaterThan): os ids do próximo bloco,
+	 * a partir do último id já removido, e o delete desses ids.
+	 */
+	@Query("select c.id from Client c where c.income > :income and c.id > :afterId order by c.id")
+	List<Long> findIdsByIncomeGreaterThan(@Param("income") double salarioI, @Param("afterId") long afterId, Pageable pageable);
+	
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("delete from Client c where c.id in :ids and c.income > :income")
+	int deleteByIdInAndIncomeGreaterThan(@Param("ids") Collection<Long> ids, @Param("income") double salarioI);
+	
+	/*
+	 * Agregações de income feitas pelo banco (GET /clients/stats/income).
+	 * incomeHistogram conta os clientes por faixa de largura width a partir de min:
+	 * cada linha é { índice da faixa, quantidade }.
+	 */
+	@Transactional(readOnly = true)
+	@CachedClientQuery
+	@Query("select new com.iftm.client.dto.IncomeStatsDTO(count(c.income), sum(c.income), avg(c.income), min(c.income), max(c.income))"
+			+ " from Client c where c.income > :income")
+	IncomeStatsDTO incomeSummary(@Param("income") double salarioI);
+	
+	@Transactional(readOnly = true)
+	@Query(nativeQuery = true, value = "select t.bucket, count(*) from"
+			+ " (select floor((income - :min) / :width) as bucket from tb_client where income > :income) t"
+			+ " group by t.bucket order by t.bucket")
+	List<Object[]> incomeHistogram(@Param("income") double salarioI, @Param("min") double min, @Param("width") double width);
+	
+	/*
+	 * Percorre toda a tabela com um cursor JDBC (fetch size de 1000 linhas), sem montar páginas.
+	 * Precisa ser consumido dentro de uma transação e fechado ao final.
+	 */
+	@QueryHints(value = @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+	@Query(SELECT_DTO + " order by c.id")
+	Stream<ClientDTO> streamAll();
+	
 }
@@ -0,0 +1,34 @@
+package com.iftm.client.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+
+/*
+ * Consultas montadas manualmente (implementadas em ClientRepositoryImpl).
+ * Os métodos *Seek retornam até seek.getSize() + 1 registros: o registro extra
+ * serve apenas para indicar que existe uma próxima página.
+ * findAllFields busca só as colunas pedidas (sparse fieldset), uma entrada por campo em cada Map.
+ * findDtoAll aplica uma Specification projetando direto em ClientDTO, sem carregar entidades.
+ */
+public interface ClientRepositoryCustom {
+
+	List<ClientDTO> findAllSeek(ClientSeek seek);
+
+	List<ClientDTO> findByIncomeSeek(Double income, ClientSeek seek);
+
+	List<ClientDTO> findByIncomeGreaterThanSeek(Double income, ClientSeek seek);
+
+	List<ClientDTO> findByCpfLikeSeek(String parteCpf, ClientSeek seek);
+
+	Page<Map<String, Object>> findAllFields(Collection<String> fields, Pageable pageable);
+
+	Page<ClientDTO> findDtoAll(Specification<Client> spec, Pageable pageable);
+}
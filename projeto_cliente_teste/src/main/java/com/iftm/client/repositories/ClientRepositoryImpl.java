@@ -0,0 +1,207 @@
+package com.iftm.client.repositories;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+
+public class ClientRepositoryImpl implements ClientRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public List<ClientDTO> findAllSeek(ClientSeek seek) {
+		return seek(null, new HashMap<>(), seek);
+	}
+
+	@Override
+	public List<ClientDTO> findByIncomeSeek(Double income, ClientSeek seek) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("income", income);
+		return seek("c.income = :income", params, seek);
+	}
+
+	@Override
+	public List<ClientDTO> findByIncomeGreaterThanSeek(Double income, ClientSeek seek) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("income", income);
+		return seek("c.income > :income", params, seek);
+	}
+
+	@Override
+	public List<ClientDTO> findByCpfLikeSeek(String parteCpf, ClientSeek seek) {
+		Map<String, Object> params = new HashMap<>();
+		params.put("cpf", parteCpf);
+		return seek("c.cpf like :cpf escape '\\'", params, seek);
+	}
+
+	/*
+	 * Seleciona só as colunas de fields (validadas contra ClientSeek.SORTABLE_FIELDS, pois viram texto
+	 * da consulta). A ordenação do pageable também precisa usar esses campos.
+	 */
+	@Override
+	public Page<Map<String, Object>> findAllFields(Collection<String> fields, Pageable pageable) {
+		for (String field : fields) {
+			checkField(field);
+		}
+		StringBuilder jpql = new StringBuilder("select ")
+				.append(fields.stream().map(f -> "c." + f + " as " + f).collect(Collectors.joining(", ")))
+				.append(" from Client c");
+		if (pageable.getSort().isSorted()) {
+			jpql.append(" order by ");
+			String separator = "";
+			for (Sort.Order order : pageable.getSort()) {
+				checkField(order.getProperty());
+				jpql.append(separator).append("c.").append(order.getProperty()).append(order.isAscending() ? " asc" : " desc");
+				separator = ", ";
+			}
+		}
+		TypedQuery<Tuple> query = em.createQuery(jpql.toString(), Tuple.class);
+		if (pageable.isPaged()) {
+			query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+		}
+		List<Map<String, Object>> content = query.getResultList().stream().map(tuple -> {
+			Map<String, Object> row = new LinkedHashMap<>();
+			for (String field : fields) {
+				row.put(field, tuple.get(field));
+			}
+			return row;
+		}).collect(Collectors.toList());
+		return PageableExecutionUtils.getPage(content, pageable,
+				() -> em.createQuery("select count(c) from Client c", Long.class).getSingleResult());
+	}
+
+	/*
+	 * Mesmo predicado de findAll(spec, pageable), mas com select new ClientDTO(...): as linhas não
+	 * viram entidades gerenciadas (nem passam pelo dirty checking). O total é uma consulta de
+	 * count separada com o mesmo predicado, feita só quando a página não revela o total.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Page<ClientDTO> findDtoAll(Specification<Client> spec, Pageable pageable) {
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<ClientDTO> query = cb.createQuery(ClientDTO.class);
+		Root<Client> root = query.from(Client.class);
+		query.select(cb.construct(ClientDTO.class, root.get("id"), root.get("name"), root.get("cpf"), root.get("income"),
+				root.get("birthDate"), root.get("children"), root.get("version")));
+		where(query, spec, root, cb);
+		query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+		TypedQuery<ClientDTO> typed = em.createQuery(query);
+		if (pageable.isPaged()) {
+			typed.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+		}
+		return PageableExecutionUtils.getPage(typed.getResultList(), pageable, () -> {
+			CriteriaQuery<Long> count = cb.createQuery(Long.class);
+			Root<Client> countRoot = count.from(Client.class);
+			where(count, spec, countRoot, cb);
+			return em.createQuery(count.select(cb.count(countRoot))).getSingleResult();
+		});
+	}
+
+	private static void where(CriteriaQuery<?> query, Specification<Client> spec, Root<Client> root, CriteriaBuilder cb) {
+		Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+	}
+
+	/*
+	 * Monta "where <filtro> and <posição do cursor> order by <campo>, id" e limita o resultado.
+	 * A posição do cursor é escrita como "campo >= :v and (campo > :v or id > :lastId)": o primeiro
+	 * termo é o início do intervalo no índice composto (campo, id) de Client, e o banco lê só a
+	 * página a partir dali, já na ordem do índice (o teste de ClientRepositoryTest confere o plano).
+	 * Nulos ficam no início em ASC e no fim em DESC, igual à ordenação padrão do H2. Para não juntar
+	 * "campo is null" ao intervalo com um OR (o que faria o banco percorrer o índice inteiro), a
+	 * região dos nulos é uma segunda consulta, feita só quando a primeira não completa a página.
+	 */
+	private List<ClientDTO> seek(String filter, Map<String, Object> params, ClientSeek seek) {
+		String field = seek.getOrderBy();
+		checkField(field);
+		boolean asc = seek.getDirection() == Direction.ASC;
+		String prop = "c." + field;
+		String idCmp = asc ? "c.id > :lastId" : "c.id < :lastId";
+		int limit = seek.getSize() + 1;
+		params.put("lastId", seek.getLastId());
+		params.put("lastValue", seek.getLastValue());
+
+		if (seek.isFirstPage() || field.equals("id")) {
+			String position = seek.isFirstPage() ? null : idCmp;
+			return seekQuery(filter, position, params, seek, limit);
+		}
+		List<ClientDTO> rows;
+		if (seek.getLastValue() == null) {
+			// o cursor está na região dos nulos: o resto dela e, em ASC, depois os não nulos
+			rows = seekQuery(filter, prop + " is null and " + idCmp, params, seek, limit);
+			if (asc && rows.size() < limit) {
+				rows.addAll(seekQuery(filter, prop + " is not null", params, seek, limit - rows.size()));
+			}
+			return rows;
+		}
+		String position = asc
+				? prop + " >= :lastValue and (" + prop + " > :lastValue or " + idCmp + ")"
+				: prop + " <= :lastValue and (" + prop + " < :lastValue or " + idCmp + ")";
+		rows = seekQuery(filter, position, params, seek, limit);
+		if (!asc && rows.size() < limit) {
+			rows.addAll(seekQuery(filter, prop + " is null", params, seek, limit - rows.size()));
+		}
+		return rows;
+	}
+
+	private List<ClientDTO> seekQuery(String filter, String position, Map<String, Object> params, ClientSeek seek, int limit) {
+		String field = seek.getOrderBy();
+		boolean asc = seek.getDirection() == Direction.ASC;
+		StringBuilder jpql = new StringBuilder(ClientRepository.SELECT_DTO).append(" where 1 = 1");
+		if (filter != null) {
+			jpql.append(" and (").append(filter).append(")");
+		}
+		if (position != null) {
+			jpql.append(" and (").append(position).append(")");
+		}
+		String dir = asc ? " asc" : " desc";
+		jpql.append(" order by ");
+		if (!field.equals("id")) {
+			jpql.append("c.").append(field).append(dir).append(asc ? " nulls first, " : " nulls last, ");
+		}
+		jpql.append("c.id").append(dir);
+
+		TypedQuery<ClientDTO> query = em.createQuery(jpql.toString(), ClientDTO.class);
+		// só os parâmetros usados por esta consulta (a região dos nulos não usa lastValue, por exemplo)
+		params.forEach((name, value) -> {
+			if (jpql.indexOf(":" + name) >= 0) {
+				query.setParameter(name, value);
+			}
+		});
+		return new ArrayList<>(query.setMaxResults(limit).getResultList());
+	}
+
+	private static void checkField(String field) {
+		if (!ClientSeek.SORTABLE_FIELDS.containsKey(field)) {
+			throw new IllegalArgumentException("Field not sortable: " + field);
+		}
+	}
+}
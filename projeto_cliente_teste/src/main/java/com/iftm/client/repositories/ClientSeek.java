@@ -0,0 +1,71 @@
+package com.iftm.client.repositories;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.Sort.Direction;
+
+/*
+ * Posição de uma paginação por keyset (seek): em vez de pular "page * size" linhas,
+ * a consulta continua a partir do último valor de orderBy e do último id já entregues.
+ * lastId nulo indica a primeira página.
+ */
+public class ClientSeek {
+
+	/*
+	 * Campos que podem ser usados como orderBy na paginação por keyset, com o tipo do valor
+	 * guardado no cursor. O id é sempre usado como critério de desempate.
+	 */
+	public static final Map<String, Class<?>> SORTABLE_FIELDS;
+
+	static {
+		Map<String, Class<?>> fields = new LinkedHashMap<>();
+		fields.put("id", Long.class);
+		fields.put("name", String.class);
+		fields.put("cpf", String.class);
+		fields.put("income", Double.class);
+		fields.put("birthDate", Instant.class);
+		fields.put("children", Integer.class);
+		SORTABLE_FIELDS = Collections.unmodifiableMap(fields);
+	}
+
+	private final String orderBy;
+	private final Direction direction;
+	private final Object lastValue;
+	private final Long lastId;
+	private final int size;
+
+	public ClientSeek(String orderBy, Direction direction, Object lastValue, Long lastId, int size) {
+		this.orderBy = orderBy;
+		this.direction = direction;
+		this.lastValue = lastValue;
+		this.lastId = lastId;
+		this.size = size;
+	}
+
+	public String getOrderBy() {
+		return orderBy;
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public Object getLastValue() {
+		return lastValue;
+	}
+
+	public Long getLastId() {
+		return lastId;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isFirstPage() {
+		return lastId == null;
+	}
+}
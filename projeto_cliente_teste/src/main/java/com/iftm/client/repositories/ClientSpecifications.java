@@ -0,0 +1,44 @@
+package com.iftm.client.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.entities.Client;
+
+/*
+ * Specifications de Client para GET /clients/search. matching junta só os filtros informados
+ * numa única cláusula WHERE. Os intervalos viram >= / <= e os prefixos viram LIKE 'x%' (com
+ * % e _ escapados por LikePatterns), formas que o banco resolve pelos índices de income, cpf e name.
+ */
+public final class ClientSpecifications {
+
+	private ClientSpecifications() {
+	}
+
+	public static Specification<Client> matching(ClientFilterDTO filter) {
+		return Specification.where(atLeast("income", filter.getMinIncome()))
+				.and(atMost("income", filter.getMaxIncome()))
+				.and(atLeast("children", filter.getMinChildren()))
+				.and(atMost("children", filter.getMaxChildren()))
+				.and(atLeast("birthDate", filter.getBornFrom()))
+				.and(atMost("birthDate", filter.getBornTo()))
+				.and(startsWith("name", filter.getNamePrefix()))
+				.and(startsWith("cpf", filter.getCpfPrefix()));
+	}
+
+	public static <T extends Comparable<? super T>> Specification<Client> atLeast(String attribute, T value) {
+		return value == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get(attribute), value);
+	}
+
+	public static <T extends Comparable<? super T>> Specification<Client> atMost(String attribute, T value) {
+		return value == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get(attribute), value);
+	}
+
+	public static Specification<Client> startsWith(String attribute, String prefix) {
+		if (prefix == null || prefix.isEmpty()) {
+			return null;
+		}
+		String pattern = LikePatterns.startingWith(prefix);
+		return (root, query, cb) -> cb.like(root.get(attribute), pattern, LikePatterns.ESCAPE_CHAR);
+	}
+}
@@ -0,0 +1,34 @@
+package com.iftm.client.repositories;
+
+/*
+ * Padrões de LIKE montados a partir do texto digitado pelo usuário: %, _ e a própria barra são
+ * escapados com ESCAPE_CHAR, então o texto é comparado literalmente (como no ClientSearchIndex).
+ * Toda consulta que recebe um desses padrões declara "escape '\'".
+ */
+public final class LikePatterns {
+
+	public static final char ESCAPE_CHAR = '\\';
+
+	private LikePatterns() {
+	}
+
+	public static String escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 4);
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '%' || c == '_' || c == ESCAPE_CHAR) {
+				escaped.append(ESCAPE_CHAR);
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	public static String startingWith(String text) {
+		return escape(text) + "%";
+	}
+
+	public static String containing(String text) {
+		return "%" + escape(text) + "%";
+	}
+}
@@ -0,0 +1,103 @@
+package com.iftm.client.repositories.sharding;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.repositories.Accents;
+import com.iftm.client.repositories.LikePatterns;
+
+/*
+ * Predicado SQL (com parâmetros posicionais) aplicado igual em todos os shards: o equivalente,
+ * em ShardedClientRepository, das consultas derivadas de ClientRepository e de ClientSpecifications.
+ * Os padrões de like já chegam escapados por LikePatterns.
+ */
+public final class ShardFilter {
+
+	private static final ShardFilter ALL = new ShardFilter(new ArrayList<>(), new ArrayList<>());
+
+	private final List<String> conditions;
+	private final List<Object> params;
+
+	private ShardFilter(List<String> conditions, List<Object> params) {
+		this.conditions = conditions;
+		this.params = params;
+	}
+
+	public static ShardFilter all() {
+		return ALL;
+	}
+
+	public static ShardFilter incomeEquals(Double income) {
+		return new ShardFilter(new ArrayList<>(), new ArrayList<>()).and("income = ?", income);
+	}
+
+	public static ShardFilter incomeGreaterThan(Double income) {
+		return new ShardFilter(new ArrayList<>(), new ArrayList<>()).and("income > ?", income);
+	}
+
+	public static ShardFilter cpfLike(String pattern) {
+		return new ShardFilter(new ArrayList<>(), new ArrayList<>()).and("cpf LIKE ? ESCAPE '\\'", pattern);
+	}
+
+	/*
+	 * Igual a ClientRepository.findByNameLikeIgnoreCase: sem diferenciar maiúsculas nem acentos.
+	 */
+	public static ShardFilter nameLike(String pattern) {
+		ShardFilter filter = new ShardFilter(new ArrayList<>(), new ArrayList<>());
+		filter.conditions.add("UPPER(TRANSLATE(name, ?, ?)) LIKE UPPER(?) ESCAPE '\\'");
+		filter.params.add(Accents.ACCENTED);
+		filter.params.add(Accents.PLAIN);
+		filter.params.add(pattern);
+		return filter;
+	}
+
+	/*
+	 * Igual a ClientSpecifications.matching: só os filtros informados, combinados com "e".
+	 */
+	public static ShardFilter matching(ClientFilterDTO filter) {
+		ShardFilter result = new ShardFilter(new ArrayList<>(), new ArrayList<>());
+		result.andIfPresent("income >= ?", filter.getMinIncome());
+		result.andIfPresent("income <= ?", filter.getMaxIncome());
+		result.andIfPresent("children >= ?", filter.getMinChildren());
+		result.andIfPresent("children <= ?", filter.getMaxChildren());
+		result.andIfPresent("birth_date >= ?", timestamp(filter.getBornFrom()));
+		result.andIfPresent("birth_date <= ?", timestamp(filter.getBornTo()));
+		if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+			result.and("name LIKE ? ESCAPE '\\'", LikePatterns.startingWith(filter.getNamePrefix()));
+		}
+		if (filter.getCpfPrefix() != null && !filter.getCpfPrefix().isEmpty()) {
+			result.and("cpf LIKE ? ESCAPE '\\'", LikePatterns.startingWith(filter.getCpfPrefix()));
+		}
+		return result;
+	}
+
+	/*
+	 * As condições, para depois de um WHERE (ou null quando não há nenhuma).
+	 */
+	String sql() {
+		return conditions.isEmpty() ? null : String.join(" AND ", conditions);
+	}
+
+	List<Object> params() {
+		return params;
+	}
+
+	private ShardFilter and(String condition, Object param) {
+		conditions.add(condition);
+		params.add(param);
+		return this;
+	}
+
+	private void andIfPresent(String condition, Object param) {
+		if (param != null) {
+			and(condition, param);
+		}
+	}
+
+	static Timestamp timestamp(Instant instant) {
+		return instant == null ? null : Timestamp.from(instant);
+	}
+}
@@ -0,0 +1,8 @@
+package com.iftm.client.repositories.sharding;
+
+/*
+ * Como os clientes são distribuídos entre os shards (ver ShardedClientRepository).
+ */
+public enum ShardStrategy {
+	HASH_CPF, ID_RANGE
+}
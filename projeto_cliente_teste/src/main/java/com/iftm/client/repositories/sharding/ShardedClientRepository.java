@@ -0,0 +1,708 @@
+package com.iftm.client.repositories.sharding;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientSeek;
+
+/*
+ * Clientes particionados em N bancos (shards), cada um com a sua tb_client.
+ * - HASH_CPF: o shard é hash(cpf) mod N e o id carrega o shard (id = sequência local * N + shard),
+ *   então findById e findByCpf vão a um shard só. O cpf não pode mudar, pois definiria outro shard.
+ * - ID_RANGE: o id vem de uma sequência global (no shard 0) e o shard é id / id-range-size
+ *   (o último shard fica com o resto). O cpf continua único entre os shards: cada cpf é registrado
+ *   antes em tb_client_cpf (cpf -> id, chave primária cpf), também no shard 0, que responde findByCpf.
+ *   O registro e a linha do cliente estão em bancos diferentes: uma falha entre os dois é desfeita
+ *   removendo o registro, mas uma queda do processo nesse intervalo deixa um cpf registrado sem cliente.
+ * As consultas por ShardFilter vão a todos os shards em paralelo (cada um devolve as primeiras
+ * offset + size linhas já ordenadas) e os resultados são intercalados; o total é a soma dos counts.
+ * Páginas profundas custam offset + size linhas por shard: para elas, prefira a paginação por keyset.
+ */
+public class ShardedClientRepository implements Closeable {
+
+	private static final String COLUMNS = "id, name, cpf, income, birth_date, children, version";
+
+	private static final String INSERT = "INSERT INTO tb_client (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+	private static final RowMapper<ClientDTO> ROW = ShardedClientRepository::mapRow;
+
+	private final List<JdbcTemplate> shards;
+	private final List<TransactionTemplate> transactions;
+	private final ShardStrategy strategy;
+	private final long idRangeSize;
+	private final ExecutorService executor;
+
+	public ShardedClientRepository(List<JdbcTemplate> shards, ShardStrategy strategy, long idRangeSize,
+			ExecutorService executor) {
+		this.shards = shards;
+		this.strategy = strategy;
+		this.idRangeSize = idRangeSize;
+		this.executor = executor;
+		this.transactions = new ArrayList<>(shards.size());
+		for (JdbcTemplate shard : shards) {
+			transactions.add(new TransactionTemplate(new DataSourceTransactionManager(shard.getDataSource())));
+			createSchema(shard);
+		}
+		if (strategy == ShardStrategy.ID_RANGE) {
+			shards.get(0).execute("CREATE TABLE IF NOT EXISTS tb_client_cpf (cpf VARCHAR(255) PRIMARY KEY, id BIGINT NOT NULL)");
+			shards.get(0).execute("CREATE INDEX IF NOT EXISTS idx_client_cpf_client_id ON tb_client_cpf (id)");
+		}
+	}
+
+	public int size() {
+		return shards.size();
+	}
+
+	public int shardOfId(long id) {
+		if (strategy == ShardStrategy.HASH_CPF) {
+			return (int) Math.floorMod(id, (long) shards.size());
+		}
+		return (int) Math.min(id / idRangeSize, shards.size() - 1);
+	}
+
+	public int shardOfCpf(String cpf) {
+		return Math.floorMod(String.valueOf(cpf).hashCode(), shards.size());
+	}
+
+	/*
+	 * Grava um cliente novo (o id de dto é ignorado) e retorna o cliente gravado, na versão 0.
+	 * Um cpf já usado (em qualquer shard) lança DataIntegrityViolationException.
+	 */
+	public ClientDTO insert(ClientDTO dto) {
+		long id;
+		int shard;
+		if (strategy == ShardStrategy.HASH_CPF) {
+			shard = shardOfCpf(dto.getCpf());
+			id = nextValues(shards.get(shard), 1)[0] * shards.size() + shard;
+		} else {
+			id = nextValues(shards.get(0), 1)[0];
+			shard = shardOfId(id);
+			registerCpf(dto.getCpf(), id);
+		}
+		try {
+			shards.get(shard).update(INSERT, insertArgs(id, dto));
+		} catch (RuntimeException e) {
+			unregisterCpf(dto.getCpf(), id);
+			throw e;
+		}
+		return inserted(id, dto);
+	}
+
+	/*
+	 * Grava os clientes em lote: um INSERT em lote JDBC por shard, cada shard na sua transação.
+	 * Retorna os clientes gravados, na posição de cada linha. Se o lote de um shard falha (ex.: cpf
+	 * repetido), nada daquele shard é gravado e as suas linhas voltam null, para serem refeitas uma a uma.
+	 */
+	public List<ClientDTO> insertAll(List<ClientDTO> rows) {
+		ClientDTO[] results = new ClientDTO[rows.size()];
+		long[] ids = new long[rows.size()];
+		Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+		if (strategy == ShardStrategy.HASH_CPF) {
+			for (int i = 0; i < rows.size(); i++) {
+				byShard.computeIfAbsent(shardOfCpf(rows.get(i).getCpf()), key -> new ArrayList<>()).add(i);
+			}
+			byShard.forEach((shard, indexes) -> {
+				long[] values = nextValues(shards.get(shard), indexes.size());
+				for (int j = 0; j < indexes.size(); j++) {
+					ids[indexes.get(j)] = values[j] * shards.size() + shard;
+				}
+			});
+		} else {
+			long[] values = nextValues(shards.get(0), rows.size());
+			List<Object[]> cpfs = new ArrayList<>(rows.size());
+			for (int i = 0; i < rows.size(); i++) {
+				ids[i] = values[i];
+				byShard.computeIfAbsent(shardOfId(ids[i]), key -> new ArrayList<>()).add(i);
+				if (rows.get(i).getCpf() != null) {
+					cpfs.add(new Object[] { rows.get(i).getCpf(), ids[i] });
+				}
+			}
+			try {
+				transactions.get(0).executeWithoutResult(
+						status -> shards.get(0).batchUpdate("INSERT INTO tb_client_cpf (cpf, id) VALUES (?, ?)", cpfs));
+			} catch (DataAccessException e) {
+				return Arrays.asList(results);
+			}
+		}
+		byShard.forEach((shard, indexes) -> {
+			List<Object[]> args = indexes.stream().map(i -> insertArgs(ids[i], rows.get(i))).collect(Collectors.toList());
+			try {
+				transactions.get(shard).executeWithoutResult(status -> shards.get(shard).batchUpdate(INSERT, args));
+				indexes.forEach(i -> results[i] = inserted(ids[i], rows.get(i)));
+			} catch (DataAccessException e) {
+				indexes.forEach(i -> unregisterCpf(rows.get(i).getCpf(), ids[i]));
+			}
+		});
+		return Arrays.asList(results);
+	}
+
+	/*
+	 * Leitura, conferência e gravação numa transação do shard do cliente: a linha é lida com
+	 * SELECT ... FOR UPDATE, changes monta o cliente a gravar a partir dela (e pode recusar a escrita
+	 * com uma exceção, que desfaz a transação) e o UPDATE incrementa a versão. Retorna o cliente
+	 * gravado, ou vazio se o id não existe. Com ID_RANGE, o cpf novo é registrado antes do UPDATE e o
+	 * antigo só é liberado depois do commit.
+	 */
+	public Optional<ClientDTO> update(long id, UnaryOperator<ClientDTO> changes) {
+		int shard = shardOfId(id);
+		AtomicReference<String> registered = new AtomicReference<>();
+		ClientDTO[] written;
+		try {
+			written = transactions.get(shard).execute(status -> {
+				Optional<ClientDTO> current = first(shards.get(shard)
+						.query("SELECT " + COLUMNS + " FROM tb_client WHERE id = ? FOR UPDATE", ROW, id));
+				if (current.isEmpty()) {
+					return null;
+				}
+				ClientDTO dto = changes.apply(current.get());
+				dto.setId(id);
+				if (strategy == ShardStrategy.HASH_CPF && shardOfCpf(dto.getCpf()) != shard) {
+					throw new IllegalArgumentException("cpf cannot change when clients are sharded by cpf");
+				}
+				if (strategy == ShardStrategy.ID_RANGE && !Objects.equals(dto.getCpf(), current.get().getCpf())) {
+					registerCpf(dto.getCpf(), id);
+					registered.set(dto.getCpf());
+				}
+				shards.get(shard).update(
+						"UPDATE tb_client SET name = ?, cpf = ?, income = ?, birth_date = ?, children = ?, version = version + 1"
+								+ " WHERE id = ?",
+						dto.getName(), dto.getCpf(), dto.getIncome(), timestamp(dto), dto.getChildren(), id);
+				dto.setVersion(current.get().getVersion() + 1);
+				return new ClientDTO[] { current.get(), dto };
+			});
+		} catch (RuntimeException e) {
+			unregisterCpf(registered.get(), id);
+			throw e;
+		}
+		if (written == null) {
+			return Optional.empty();
+		}
+		if (registered.get() != null) {
+			unregisterCpf(written[0].getCpf(), id);
+		}
+		return Optional.of(written[1]);
+	}
+
+	/*
+	 * Altera o income de cada { income, id } e incrementa a versão: um UPDATE em lote JDBC por shard,
+	 * cada shard na sua transação. Retorna as linhas alteradas por item, na ordem de args.
+	 */
+	public int[] updateIncomes(List<Object[]> args) {
+		int[] counts = new int[args.size()];
+		Map<Integer, List<Integer>> byShard = new LinkedHashMap<>();
+		for (int i = 0; i < args.size(); i++) {
+			byShard.computeIfAbsent(shardOfId(((Number) args.get(i)[1]).longValue()), key -> new ArrayList<>()).add(i);
+		}
+		byShard.forEach((shard, indexes) -> {
+			List<Object[]> batch = indexes.stream().map(args::get).collect(Collectors.toList());
+			int[] rows = transactions.get(shard).execute(status -> shards.get(shard)
+					.batchUpdate("UPDATE tb_client SET income = ?, version = version + 1 WHERE id = ?", batch));
+			for (int j = 0; j < rows.length; j++) {
+				counts[indexes.get(j)] = rows[j];
+			}
+		});
+		return counts;
+	}
+
+	public boolean deleteById(long id) {
+		boolean deleted = shards.get(shardOfId(id)).update("DELETE FROM tb_client WHERE id = ?", id) > 0;
+		if (deleted && strategy == ShardStrategy.ID_RANGE) {
+			shards.get(0).update("DELETE FROM tb_client_cpf WHERE id = ?", id);
+		}
+		return deleted;
+	}
+
+	/*
+	 * Remove do shard até limit clientes com income maior que o informado e id maior que afterId,
+	 * em ordem de id e numa transação do shard. Retorna os ids removidos (vazio quando não há mais).
+	 */
+	public List<Long> deleteByIncomeGreaterThan(int shard, double income, long afterId, int limit) {
+		List<Long> ids = transactions.get(shard).execute(status -> {
+			List<Long> found = shards.get(shard).queryForList(
+					"SELECT id FROM tb_client WHERE income > ? AND id > ? ORDER BY id LIMIT ? FOR UPDATE",
+					Long.class, income, afterId, limit);
+			if (!found.isEmpty()) {
+				shards.get(shard).update("DELETE FROM tb_client WHERE id IN (" + placeholders(found.size()) + ")",
+						found.toArray());
+			}
+			return found;
+		});
+		if (!ids.isEmpty() && strategy == ShardStrategy.ID_RANGE) {
+			shards.get(0).update("DELETE FROM tb_client_cpf WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray());
+		}
+		return ids;
+	}
+
+	public Optional<ClientDTO> findById(long id) {
+		return first(shards.get(shardOfId(id)).query("SELECT " + COLUMNS + " FROM tb_client WHERE id = ?", ROW, id));
+	}
+
+	public Optional<ClientDTO> findByCpf(String cpf) {
+		if (strategy == ShardStrategy.HASH_CPF) {
+			return first(shards.get(shardOfCpf(cpf)).query("SELECT " + COLUMNS + " FROM tb_client WHERE cpf = ?", ROW, cpf));
+		}
+		List<Long> ids = shards.get(0).queryForList("SELECT id FROM tb_client_cpf WHERE cpf = ?", Long.class, cpf);
+		return ids.isEmpty() ? Optional.empty() : findById(ids.get(0));
+	}
+
+	public Page<ClientDTO> findAll(ShardFilter filter, Pageable pageable) {
+		String count = "SELECT COUNT(*) FROM tb_client" + where(filter);
+		List<ShardResult> results = scatter(shard -> new ShardResult(
+				shard.query(select(filter, pageable, 0), ROW, filter.params().toArray()),
+				shard.queryForObject(count, Long.class, filter.params().toArray())));
+		long total = results.stream().mapToLong(result -> result.count).sum();
+		List<List<ClientDTO>> rows = results.stream().map(result -> result.rows).collect(Collectors.toList());
+		return new PageImpl<>(merge(rows, comparator(pageable.getSort()), skip(pageable), size(pageable)), pageable, total);
+	}
+
+	/*
+	 * Sem COUNT(*): cada shard devolve uma linha a mais, para saber se há próxima página.
+	 */
+	public Slice<ClientDTO> findSlice(ShardFilter filter, Pageable pageable) {
+		String select = select(filter, pageable, 1);
+		List<List<ClientDTO>> rows = scatter(shard -> shard.query(select, ROW, filter.params().toArray()));
+		List<ClientDTO> content = merge(rows, comparator(pageable.getSort()), skip(pageable), size(pageable) + 1L);
+		boolean hasNext = content.size() > size(pageable);
+		return new SliceImpl<>(hasNext ? content.subList(0, size(pageable)) : content, pageable, hasNext);
+	}
+
+	/*
+	 * Sparse fieldset: a página é montada como em findAll e projetada nos campos pedidos.
+	 */
+	public Page<Map<String, Object>> findAllFields(Collection<String> fields, Pageable pageable) {
+		for (String field : fields) {
+			column(field);
+		}
+		return findAll(ShardFilter.all(), pageable).map(dto -> {
+			Map<String, Object> row = new LinkedHashMap<>();
+			for (String field : fields) {
+				row.put(field, value(dto, field));
+			}
+			return row;
+		});
+	}
+
+	public long count(ShardFilter filter) {
+		String count = "SELECT COUNT(*) FROM tb_client" + where(filter);
+		return scatter(shard -> shard.queryForObject(count, Long.class, filter.params().toArray())).stream()
+				.mapToLong(Long::longValue).sum();
+	}
+
+	/*
+	 * Keyset: cada shard aplica a mesma posição de cursor de ClientRepositoryImpl (com a região dos
+	 * nulos numa consulta separada) e devolve até size + 1 linhas; as listas são intercaladas.
+	 */
+	public List<ClientDTO> seek(ShardFilter filter, ClientSeek seek) {
+		int limit = seek.getSize() + 1;
+		List<List<ClientDTO>> rows = scatter(shard -> seekShard(shard, filter, seek, limit));
+		return merge(rows, seekComparator(seek), 0, limit);
+	}
+
+	/*
+	 * Entrega cada cliente ao consumer, shard a shard, em ordem de id dentro de cada shard.
+	 */
+	public void forEach(Consumer<ClientDTO> consumer) {
+		String sql = "SELECT " + COLUMNS + " FROM tb_client ORDER BY id";
+		for (JdbcTemplate shard : shards) {
+			shard.query(con -> {
+				PreparedStatement ps = con.prepareStatement(sql);
+				ps.setFetchSize(1000);
+				return ps;
+			}, rs -> {
+				consumer.accept(mapRow(rs, 0));
+			});
+		}
+	}
+
+	/*
+	 * count/sum/min/max de cada shard somados (ou o menor/maior); a média sai da soma total.
+	 */
+	public IncomeStatsDTO incomeSummary(double income) {
+		List<IncomeStatsDTO> parts = scatter(shard -> shard.queryForObject(
+				"SELECT COUNT(income), SUM(income), MIN(income), MAX(income) FROM tb_client WHERE income > ?",
+				(rs, rowNum) -> new IncomeStatsDTO(rs.getLong(1), (Double) rs.getObject(2), null,
+						(Double) rs.getObject(3), (Double) rs.getObject(4)), income));
+		long count = 0;
+		double sum = 0;
+		Double min = null;
+		Double max = null;
+		for (IncomeStatsDTO part : parts) {
+			if (part.getCount() == 0) {
+				continue;
+			}
+			count += part.getCount();
+			sum += part.getSum();
+			min = min == null ? part.getMin() : Math.min(min, part.getMin());
+			max = max == null ? part.getMax() : Math.max(max, part.getMax());
+		}
+		return count == 0 ? new IncomeStatsDTO(0L, null, null, null, null)
+				: new IncomeStatsDTO(count, sum, sum / count, min, max);
+	}
+
+	/*
+	 * Histograma de buckets faixas de largura width a partir de min, somado entre os shards
+	 * (o max cai na faixa "buckets", que é somada à última).
+	 */
+	public long[] incomeHistogram(double income, double min, double width, int buckets) {
+		String sql = "SELECT t.bucket, COUNT(*) FROM (SELECT FLOOR((income - ?) / ?) AS bucket FROM tb_client"
+				+ " WHERE income > ?) t GROUP BY t.bucket";
+		long[] counts = new long[buckets];
+		for (List<long[]> rows : scatter(shard -> shard.query(sql,
+				(rs, rowNum) -> new long[] { rs.getLong(1), rs.getLong(2) }, min, width, income))) {
+			for (long[] row : rows) {
+				counts[(int) Math.min(row[0], buckets - 1)] += row[1];
+			}
+		}
+		return counts;
+	}
+
+	/*
+	 * Para as threads do scatter-gather e fecha os pools dos shards.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		for (JdbcTemplate shard : shards) {
+			if (shard.getDataSource() instanceof Closeable) {
+				((Closeable) shard.getDataSource()).close();
+			}
+		}
+	}
+
+	/*
+	 * SELECT das primeiras offset + size (+ extra) linhas na ordem pedida, com id como desempate.
+	 * Nulos ficam no início em ASC e no fim em DESC, tanto no SQL quanto no Comparator.
+	 */
+	private static String select(ShardFilter filter, Pageable pageable, int extra) {
+		StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+		for (Sort.Order order : pageable.getSort()) {
+			orderBy.append(column(order.getProperty()))
+					.append(order.isAscending() ? " ASC NULLS FIRST, " : " DESC NULLS LAST, ");
+		}
+		orderBy.append("id ASC");
+		return "SELECT " + COLUMNS + " FROM tb_client" + where(filter) + orderBy
+				+ (pageable.isPaged() ? " LIMIT " + (pageable.getOffset() + pageable.getPageSize() + extra) : "");
+	}
+
+	private static String where(ShardFilter filter) {
+		return filter.sql() == null ? "" : " WHERE " + filter.sql();
+	}
+
+	/*
+	 * Intercala as listas já ordenadas dos shards com uma fila de prioridade, pulando as primeiras
+	 * skip linhas e parando em limit.
+	 */
+	private static List<ClientDTO> merge(List<List<ClientDTO>> lists, Comparator<ClientDTO> comparator, long skip,
+			long limit) {
+		Comparator<Cursor> byHead = Comparator.comparing(cursor -> cursor.head, comparator);
+		PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, lists.size()), byHead);
+		for (List<ClientDTO> rows : lists) {
+			Cursor cursor = new Cursor(rows.iterator());
+			if (cursor.advance()) {
+				heads.add(cursor);
+			}
+		}
+		List<ClientDTO> content = new ArrayList<>();
+		while (!heads.isEmpty() && content.size() < limit) {
+			Cursor cursor = heads.poll();
+			if (skip > 0) {
+				skip--;
+			} else {
+				content.add(cursor.head);
+			}
+			if (cursor.advance()) {
+				heads.add(cursor);
+			}
+		}
+		return content;
+	}
+
+	private List<ClientDTO> seekShard(JdbcTemplate shard, ShardFilter filter, ClientSeek seek, int limit) {
+		String column = column(seek.getOrderBy());
+		boolean asc = seek.getDirection() == Direction.ASC;
+		String idCmp = asc ? "id > ?" : "id < ?";
+		if (seek.isFirstPage()) {
+			return seekQuery(shard, filter, null, Collections.emptyList(), seek, limit);
+		}
+		if (column.equals("id")) {
+			return seekQuery(shard, filter, idCmp, List.of(seek.getLastId()), seek, limit);
+		}
+		List<ClientDTO> rows;
+		Object lastValue = seek.getLastValue() instanceof Instant ? Timestamp.from((Instant) seek.getLastValue())
+				: seek.getLastValue();
+		if (lastValue == null) {
+			rows = seekQuery(shard, filter, column + " IS NULL AND " + idCmp, List.of(seek.getLastId()), seek, limit);
+			if (asc && rows.size() < limit) {
+				rows.addAll(seekQuery(shard, filter, column + " IS NOT NULL", Collections.emptyList(), seek,
+						limit - rows.size()));
+			}
+			return rows;
+		}
+		String position = asc
+				? column + " >= ? AND (" + column + " > ? OR " + idCmp + ")"
+				: column + " <= ? AND (" + column + " < ? OR " + idCmp + ")";
+		rows = seekQuery(shard, filter, position, List.of(lastValue, lastValue, seek.getLastId()), seek, limit);
+		if (!asc && rows.size() < limit) {
+			rows.addAll(seekQuery(shard, filter, column + " IS NULL", Collections.emptyList(), seek, limit - rows.size()));
+		}
+		return rows;
+	}
+
+	private static List<ClientDTO> seekQuery(JdbcTemplate shard, ShardFilter filter, String position,
+			List<Object> positionParams, ClientSeek seek, int limit) {
+		String column = column(seek.getOrderBy());
+		String dir = seek.getDirection() == Direction.ASC ? " ASC" : " DESC";
+		StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM tb_client WHERE 1 = 1");
+		if (filter.sql() != null) {
+			sql.append(" AND (").append(filter.sql()).append(")");
+		}
+		if (position != null) {
+			sql.append(" AND (").append(position).append(")");
+		}
+		sql.append(" ORDER BY ");
+		if (!column.equals("id")) {
+			sql.append(column).append(dir).append(dir.equals(" ASC") ? " NULLS FIRST, " : " NULLS LAST, ");
+		}
+		sql.append("id").append(dir).append(" LIMIT ").append(limit);
+		List<Object> params = new ArrayList<>(filter.params());
+		params.addAll(positionParams);
+		return new ArrayList<>(shard.query(sql.toString(), ROW, params.toArray()));
+	}
+
+	/*
+	 * Roda a consulta em todos os shards em paralelo e devolve os resultados na ordem dos shards.
+	 */
+	private <T> List<T> scatter(Function<JdbcTemplate, T> query) {
+		List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+		for (JdbcTemplate shard : shards) {
+			futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+		}
+		List<T> results = new ArrayList<>(futures.size());
+		try {
+			for (CompletableFuture<T> future : futures) {
+				results.add(future.join());
+			}
+		} catch (CompletionException e) {
+			futures.forEach(future -> future.cancel(true));
+			if (e.getCause() instanceof DataAccessException) {
+				throw (DataAccessException) e.getCause();
+			}
+			throw e;
+		}
+		return results;
+	}
+
+	private void registerCpf(String cpf, long id) {
+		if (cpf != null) {
+			shards.get(0).update("INSERT INTO tb_client_cpf (cpf, id) VALUES (?, ?)", cpf, id);
+		}
+	}
+
+	private void unregisterCpf(String cpf, long id) {
+		if (cpf != null && strategy == ShardStrategy.ID_RANGE) {
+			shards.get(0).update("DELETE FROM tb_client_cpf WHERE cpf = ? AND id = ?", cpf, id);
+		}
+	}
+
+	private static Comparator<ClientDTO> comparator(Sort sort) {
+		Comparator<ClientDTO> comparator = null;
+		for (Sort.Order order : sort) {
+			Comparator<ClientDTO> next = comparator(order.getProperty(), order.isAscending());
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+		Comparator<ClientDTO> byId = Comparator.comparing(ClientDTO::getId);
+		return comparator == null ? byId : comparator.thenComparing(byId);
+	}
+
+	/*
+	 * Ordem do keyset: o campo e depois o id, os dois na direção do cursor.
+	 */
+	private static Comparator<ClientDTO> seekComparator(ClientSeek seek) {
+		boolean asc = seek.getDirection() == Direction.ASC;
+		Comparator<ClientDTO> byId = comparator("id", asc);
+		return seek.getOrderBy().equals("id") ? byId : comparator(seek.getOrderBy(), asc).thenComparing(byId);
+	}
+
+	private static Comparator<ClientDTO> comparator(String property, boolean ascending) {
+		Comparator<ClientDTO> comparator;
+		switch (property) {
+		case "id":
+			comparator = by(ClientDTO::getId);
+			break;
+		case "name":
+			comparator = by(ClientDTO::getName);
+			break;
+		case "cpf":
+			comparator = by(ClientDTO::getCpf);
+			break;
+		case "income":
+			comparator = by(ClientDTO::getIncome);
+			break;
+		case "birthDate":
+			comparator = by(ClientDTO::getBirthDate);
+			break;
+		case "children":
+			comparator = by(ClientDTO::getChildren);
+			break;
+		default:
+			throw new IllegalArgumentException("Invalid field " + property);
+		}
+		return ascending ? comparator : comparator.reversed();
+	}
+
+	private static <T extends Comparable<? super T>> Comparator<ClientDTO> by(Function<ClientDTO, T> key) {
+		return Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+	}
+
+	private static Object value(ClientDTO dto, String field) {
+		switch (field) {
+		case "id":
+			return dto.getId();
+		case "name":
+			return dto.getName();
+		case "cpf":
+			return dto.getCpf();
+		case "income":
+			return dto.getIncome();
+		case "birthDate":
+			return dto.getBirthDate();
+		default:
+			return dto.getChildren();
+		}
+	}
+
+	private static String column(String property) {
+		if (!ClientSeek.SORTABLE_FIELDS.containsKey(property)) {
+			throw new IllegalArgumentException("Invalid field " + property);
+		}
+		return property.equals("birthDate") ? "birth_date" : property;
+	}
+
+	/*
+	 * Os índices saem de @Table(indexes) de Client, a mesma definição que o Hibernate usa no banco único
+	 * (propriedades como birthDate viram colunas birth_date).
+	 */
+	private static void createSchema(JdbcTemplate shard) {
+		shard.execute("CREATE TABLE IF NOT EXISTS tb_client (id BIGINT PRIMARY KEY, name VARCHAR(255), cpf VARCHAR(255), "
+				+ "income DOUBLE, birth_date TIMESTAMP, children INTEGER, version BIGINT NOT NULL)");
+		for (Index index : Client.class.getAnnotation(Table.class).indexes()) {
+			String columns = Arrays.stream(index.columnList().split(","))
+					.map(column -> column.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase())
+					.collect(Collectors.joining(", "));
+			shard.execute("CREATE " + (index.unique() ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + index.name()
+					+ " ON tb_client (" + columns + ")");
+		}
+		shard.execute("CREATE SEQUENCE IF NOT EXISTS seq_client_shard START WITH 1");
+	}
+
+	/*
+	 * Reserva count valores da sequência do shard numa única consulta.
+	 */
+	private static long[] nextValues(JdbcTemplate shard, int count) {
+		return shard.queryForList("SELECT NEXT VALUE FOR seq_client_shard FROM SYSTEM_RANGE(1, ?)", Long.class, count)
+				.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static Object[] insertArgs(long id, ClientDTO dto) {
+		return new Object[] { id, dto.getName(), dto.getCpf(), dto.getIncome(), timestamp(dto), dto.getChildren() };
+	}
+
+	private static ClientDTO inserted(long id, ClientDTO dto) {
+		return new ClientDTO(id, dto.getName(), dto.getCpf(), dto.getIncome(), dto.getBirthDate(), dto.getChildren(), 0L);
+	}
+
+	private static String placeholders(int count) {
+		return String.join(", ", Collections.nCopies(count, "?"));
+	}
+
+	private static Timestamp timestamp(ClientDTO dto) {
+		return ShardFilter.timestamp(dto.getBirthDate());
+	}
+
+	private static ClientDTO mapRow(ResultSet rs, int rowNum) throws SQLException {
+		Timestamp birthDate = rs.getTimestamp("birth_date");
+		return new ClientDTO(rs.getLong("id"), rs.getString("name"), rs.getString("cpf"),
+				(Double) rs.getObject("income"), birthDate == null ? null : birthDate.toInstant(),
+				(Integer) rs.getObject("children"), rs.getLong("version"));
+	}
+
+	private static Optional<ClientDTO> first(List<ClientDTO> rows) {
+		return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+	}
+
+	private static long skip(Pageable pageable) {
+		return pageable.isPaged() ? pageable.getOffset() : 0;
+	}
+
+	private static int size(Pageable pageable) {
+		return pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE - 1;
+	}
+
+	private static class ShardResult {
+		private final List<ClientDTO> rows;
+		private final long count;
+
+		ShardResult(List<ClientDTO> rows, long count) {
+			this.rows = rows;
+			this.count = count;
+		}
+	}
+
+	private static class Cursor {
+		private final Iterator<ClientDTO> rows;
+		private ClientDTO head;
+
+		Cursor(Iterator<ClientDTO> rows) {
+			this.rows = rows;
+		}
+
+		boolean advance() {
+			head = rows.hasNext() ? rows.next() : null;
+			return head != null;
+		}
+	}
+}
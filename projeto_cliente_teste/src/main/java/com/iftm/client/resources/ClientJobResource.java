@@ -0,0 +1,50 @@
+package com.iftm.client.resources;
+
+import java.net.URI;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.iftm.client.dto.JobDTO;
+import com.iftm.client.dto.JobRequestDTO;
+import com.iftm.client.services.ClientJobService;
+
+/*
+ * Jobs assíncronos de importação e purge: o POST só enfileira (202 Accepted, ou 429 com a fila
+ * cheia) e o andamento é acompanhado pelo GET em /clients/jobs/{id}.
+ */
+@RestController
+@RequestMapping(value = "/clients/jobs")
+public class ClientJobResource {
+
+	@Autowired
+	private ClientJobService service;
+
+	@PostMapping
+	public ResponseEntity<JobDTO> submit(@RequestBody JobRequestDTO request) {
+		JobDTO job = service.submit(request);
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+				.buildAndExpand(job.getId()).toUri();
+		return ResponseEntity.accepted().location(uri).body(job);
+	}
+
+	@GetMapping(value = "/{id}")
+	public ResponseEntity<JobDTO> findById(@PathVariable String id) {
+		JobDTO job = service.findById(id);
+		return ResponseEntity.ok().body(job);
+	}
+
+	@DeleteMapping(value = "/{id}")
+	public ResponseEntity<JobDTO> cancel(@PathVariable String id) {
+		JobDTO job = service.cancel(id);
+		return ResponseEntity.ok().body(job);
+	}
+}
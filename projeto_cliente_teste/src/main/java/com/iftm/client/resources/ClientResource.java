@@ -1,56 +1,117 @@
 package com.iftm.client.resources;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iftm.client.config.QueryBudget;
+import com.iftm.client.dto.BatchResultDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.dto.CursorPageDTO;
+import com.iftm.client.dto.IncomeChangeDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.dto.PurgeResultDTO;
+import com.iftm.client.repositories.LikePatterns;
 import com.iftm.client.services.ClientService;
+import com.iftm.client.services.exceptions.BadRequestException;
 
 @RestController
 @RequestMapping(value = "/clients")
 public class ClientResource {
 	
+	private static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+	
 	@Autowired
 	private ClientService service;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
 
+	/* Mudança
+	 * fields (opcional, ex.: fields=id,name): retorna somente esses campos de cada cliente.
+	 */
+	@QueryBudget(2)
 	@GetMapping
-	public ResponseEntity<Page<ClientDTO>> findAll(
+	public ResponseEntity<Page<?>> findAll(
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
 			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
 			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
-			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "fields", required = false) List<String> fields) 
 	{
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		Page<ClientDTO> list = service.findAllPaged(pageRequest);
-		return ResponseEntity.ok().body(list);
+		Page<?> list = fields == null || fields.isEmpty()
+				? service.findAllPaged(pageRequest)
+				: service.findAllPaged(pageRequest, new LinkedHashSet<>(fields));
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
 	}
 	
 	
+	/* Mudança
+	 * As consultas retornam ETags fracos; com If-None-Match igual ao ETag atual a resposta é
+	 * 304 sem corpo (o ResponseEntity não chega a ser serializado).
+	 */
+	@QueryBudget(1)
 	@GetMapping(value = "/{id}")
 	public ResponseEntity<ClientDTO> findById(@PathVariable Long id) {
 		ClientDTO dto = service.findById(id);
-		return ResponseEntity.ok().body(dto);
+		return ResponseEntity.ok().eTag(eTag(dto)).body(dto);
+	}
+	
+	/* Mudança
+	 * Novo método: busca pelo cpf exato (com shards, vai direto ao shard do cpf).
+	 */
+	@QueryBudget(1)
+	@GetMapping(value = "/cpf/{cpf}")
+	public ResponseEntity<ClientDTO> findByCpf(@PathVariable String cpf) {
+		ClientDTO dto = service.findByCpf(cpf);
+		return ResponseEntity.ok().eTag(eTag(dto)).body(dto);
 	}
 	
 	/* Mudança
 	 * Novo método: retorna uma lista paginada baseada no salário. 
 	 * @PathVariable Double income
 	 */
+	@QueryBudget(2)
 	@GetMapping(value = "/income/")
 	public ResponseEntity<Page<ClientDTO>> findByIncome(@RequestParam(value = "income", defaultValue = "0.") Double income,
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
@@ -60,11 +121,12 @@ public class ClientResource {
 	{		
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
 		Page<ClientDTO> list = service.findByIncome(pageRequest, income);
-		return ResponseEntity.ok().body(list);
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
 	}
 	/* Mudança
 	 * Novo método: retorna uma lista paginada baseada no salário
 	 */
+	@QueryBudget(2)
 	@GetMapping(value = "/incomeGreaterThan/")
 	public ResponseEntity<Page<ClientDTO>> findByIncomeGreaterThan(
 			@RequestParam(value = "income", defaultValue = "0") Double income,
@@ -75,41 +137,467 @@ public class ClientResource {
 	{
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
 		Page<ClientDTO> list = service.findByIncomeGreaterThan(pageRequest, income);
-		return ResponseEntity.ok().body(list);
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
 	}
 	
 	/* Mudança
 	 * Novo método: retorna uma lista paginada baseada no cpf com like
+	 * mode=prefix (padrão) busca cpfs que começam com o texto; mode=contains busca o texto em
+	 * qualquer posição. Os dois modos são respondidos pelo ClientSearchIndex quando ele está pronto.
 	 */
+	@QueryBudget(2)
 	@GetMapping(value = "/cpf/")
 	public ResponseEntity<Page<ClientDTO>> findByCPFLike(
 			@RequestParam(value = "cpf", defaultValue = "") String cpf,
+			@RequestParam(value = "mode", defaultValue = "prefix") String mode,
 			@RequestParam(value = "page", defaultValue = "0") Integer page,
 			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
 			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
 			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
 	{
 		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
-		Page<ClientDTO> list = service.findByCpfLike(pageRequest, "%"+cpf+"%");
-		return ResponseEntity.ok().body(list);
+		Page<ClientDTO> list = service.searchByCpf(pageRequest, cpf, isPrefixMode(mode));
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
+	}
+	
+	/* Mudança
+	 * Novo método: busca por nome (sem diferenciar maiúsculas), por prefixo (padrão) ou trecho.
+	 */
+	@QueryBudget(2)
+	@GetMapping(value = "/name/")
+	public ResponseEntity<Page<ClientDTO>> findByName(
+			@RequestParam(value = "name", defaultValue = "") String name,
+			@RequestParam(value = "mode", defaultValue = "prefix") String mode,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Page<ClientDTO> list = service.searchByName(pageRequest, name, isPrefixMode(mode));
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
 	}	
+	
+	/* Mudança
+	 * Busca combinando filtros opcionais (ex.: minIncome=2000&maxIncome=5000&minChildren=2&namePrefix=C):
+	 * minIncome/maxIncome, minChildren/maxChildren, bornFrom/bornTo (ISO-8601, ex.: 1990-01-01T00:00:00Z),
+	 * namePrefix e cpfPrefix. Todos viram uma única consulta.
+	 */
+	@QueryBudget(2)
+	@GetMapping(value = "/search")
+	public ResponseEntity<Page<ClientDTO>> search(ClientFilterDTO filter,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Page<ClientDTO> list = service.search(filter, pageRequest);
+		return ResponseEntity.ok().eTag(eTag(list)).body(list);
+	}
+	
+	/* Mudança
+	 * Paginação por keyset: em vez de "page", recebe o "cursor" devolvido em nextCursor
+	 * pela página anterior. O custo de qualquer página é o mesmo da primeira.
+	 * Uma página que passa da região dos nulos de orderBy usa uma segunda consulta (ver ClientRepositoryImpl).
+	 */
+	@QueryBudget(2)
+	@GetMapping(value = "/seek")
+	public ResponseEntity<CursorPageDTO<ClientDTO>> findAllSeek(
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		CursorPageDTO<ClientDTO> list = service.findAllSeek(cursor, linesPerPage, Direction.valueOf(direction), orderBy);
+		return ResponseEntity.ok().body(list);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/income/seek")
+	public ResponseEntity<CursorPageDTO<ClientDTO>> findByIncomeSeek(
+			@RequestParam(value = "income", defaultValue = "0.") Double income,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		CursorPageDTO<ClientDTO> list = service.findByIncomeSeek(income, cursor, linesPerPage, Direction.valueOf(direction), orderBy);
+		return ResponseEntity.ok().body(list);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/incomeGreaterThan/seek")
+	public ResponseEntity<CursorPageDTO<ClientDTO>> findByIncomeGreaterThanSeek(
+			@RequestParam(value = "income", defaultValue = "0") Double income,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		CursorPageDTO<ClientDTO> list = service.findByIncomeGreaterThanSeek(income, cursor, linesPerPage, Direction.valueOf(direction), orderBy);
+		return ResponseEntity.ok().body(list);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/cpf/seek")
+	public ResponseEntity<CursorPageDTO<ClientDTO>> findByCPFLikeSeek(
+			@RequestParam(value = "cpf", defaultValue = "") String cpf,
+			@RequestParam(value = "mode", defaultValue = "prefix") String mode,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy) 
+	{
+		CursorPageDTO<ClientDTO> list = service.findByCpfLikeSeek(cpfPattern(cpf, mode), cursor, linesPerPage, Direction.valueOf(direction), orderBy);
+		return ResponseEntity.ok().body(list);
+	}
+	
+	/* Mudança
+	 * Listagens sem COUNT(*): retornam uma Slice (sem totalElements/totalPages).
+	 * Com approximateTotal=true, o total aproximado (cacheado) vai no header X-Total-Count-Approximate.
+	 */
+	@QueryBudget(2)
+	@GetMapping(value = "/slice")
+	public ResponseEntity<Slice<ClientDTO>> findAllSliced(
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "approximateTotal", defaultValue = "false") boolean approximateTotal) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Slice<ClientDTO> list = service.findAllSliced(pageRequest);
+		return sliceResponse(list, approximateTotal ? service.countAllApproximate() : null);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/income/slice")
+	public ResponseEntity<Slice<ClientDTO>> findByIncomeSliced(
+			@RequestParam(value = "income", defaultValue = "0.") Double income,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "approximateTotal", defaultValue = "false") boolean approximateTotal) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Slice<ClientDTO> list = service.findByIncomeSliced(pageRequest, income);
+		return sliceResponse(list, approximateTotal ? service.countByIncomeApproximate(income) : null);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/incomeGreaterThan/slice")
+	public ResponseEntity<Slice<ClientDTO>> findByIncomeGreaterThanSliced(
+			@RequestParam(value = "income", defaultValue = "0") Double income,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "approximateTotal", defaultValue = "false") boolean approximateTotal) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Slice<ClientDTO> list = service.findByIncomeGreaterThanSliced(pageRequest, income);
+		return sliceResponse(list, approximateTotal ? service.countByIncomeGreaterThanApproximate(income) : null);
+	}
+	
+	@QueryBudget(2)
+	@GetMapping(value = "/cpf/slice")
+	public ResponseEntity<Slice<ClientDTO>> findByCPFLikeSliced(
+			@RequestParam(value = "cpf", defaultValue = "") String cpf,
+			@RequestParam(value = "mode", defaultValue = "prefix") String mode,
+			@RequestParam(value = "page", defaultValue = "0") Integer page,
+			@RequestParam(value = "linesPerPage", defaultValue = "12") Integer linesPerPage,
+			@RequestParam(value = "direction", defaultValue = "ASC") String direction,
+			@RequestParam(value = "orderBy", defaultValue = "name") String orderBy,
+			@RequestParam(value = "approximateTotal", defaultValue = "false") boolean approximateTotal) 
+	{
+		PageRequest pageRequest = PageRequest.of(page, linesPerPage, Direction.valueOf(direction), orderBy);
+		Slice<ClientDTO> list = service.findByCpfLikeSliced(pageRequest, cpfPattern(cpf, mode));
+		return sliceResponse(list, approximateTotal ? service.countByCpfLikeApproximate(cpfPattern(cpf, mode)) : null);
+	}
+	
+	/* Mudança
+	 * Administração: remove todos os clientes com income maior que o informado, em blocos
+	 * (uma transação por bloco). Retorna as linhas apagadas e o tempo gasto.
+	 */
+	@DeleteMapping(value = "/admin/purge")
+	public ResponseEntity<PurgeResultDTO> purgeByIncomeGreaterThan(@RequestParam(value = "incomeGreaterThan") Double income) {
+		PurgeResultDTO result = service.purgeByIncomeGreaterThan(income);
+		return ResponseEntity.ok().body(result);
+	}
+	
+	/* Mudança
+	 * Estatísticas de income calculadas no banco: count, sum, mean, min, max, histograma com
+	 * "buckets" faixas e percentis aproximados. incomeGreaterThan (opcional) filtra como em /incomeGreaterThan/.
+	 */
+	@QueryBudget(3)
+	@GetMapping(value = "/stats/income")
+	public ResponseEntity<IncomeStatsDTO> incomeStats(
+			@RequestParam(value = "incomeGreaterThan", required = false) Double income,
+			@RequestParam(value = "buckets", defaultValue = "10") Integer buckets)
+	{
+		IncomeStatsDTO stats = service.incomeStats(income, buckets);
+		return ResponseEntity.ok().body(stats);
+	}
+	
+	/* Mudança
+	 * Exportação de todos os clientes em NDJSON (padrão) ou CSV, escrita direto na resposta
+	 * à medida que as linhas são lidas do banco.
+	 */
+	@GetMapping(value = "/export")
+	public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+		if (format.equalsIgnoreCase("csv")) {
+			StreamingResponseBody body = out -> {
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				writer.write("id,name,cpf,income,birthDate,children\n");
+				service.exportAll(dto -> write(writer, toCsv(dto)));
+				writer.flush();
+			};
+			return ResponseEntity.ok()
+					.contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+					.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"clients.csv\"")
+					.body(body);
+		}
+		if (format.equalsIgnoreCase("ndjson")) {
+			StreamingResponseBody body = out -> {
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				service.exportAll(dto -> write(writer, toJson(dto)));
+				writer.flush();
+			};
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+		}
+		throw new BadRequestException("Invalid format " + format);
+	}
+	
+	// a primeira reserva de ids da sequence (pooled) chama a sequence duas vezes
+	@QueryBudget(3)
 	@PostMapping
 	public ResponseEntity<ClientDTO> insert(@RequestBody ClientDTO dto) {
 		dto = service.insert(dto);
 		URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
 				.buildAndExpand(dto.getId()).toUri();
-		return ResponseEntity.created(uri).body(dto);
+		return ResponseEntity.created(uri).eTag(eTag(dto)).body(dto);
+	}
+	
+	/* Mudança
+	 * Inserção em lote: recebe um array JSON ou um stream NDJSON (um cliente por linha)
+	 * e retorna o resultado de cada linha.
+	 */
+	@PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<BatchResultDTO>> insertBatch(@RequestBody List<ClientDTO> dtos) {
+		List<BatchResultDTO> results = service.insertBatch(dtos.iterator());
+		return ResponseEntity.ok().body(results);
+	}
+	
+	@PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<List<BatchResultDTO>> insertBatchNdjson(InputStream body) {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+		List<BatchResultDTO> results = service.insertBatch(new NdjsonIterator(reader));
+		return ResponseEntity.ok().body(results);
 	}
 	
+	/* Mudança
+	 * If-Match (opcional): só atualiza se o cliente ainda está na versão do ETag informado,
+	 * senão responde 412. Sem If-Match, uma versão no corpo diferente da atual responde 409.
+	 */
+	@QueryBudget(2)
 	@PutMapping(value = "/{id}")
-	public ResponseEntity<ClientDTO> update(@PathVariable Long id, @RequestBody ClientDTO dto) {
-		dto = service.update(id, dto);
-		return ResponseEntity.ok().body(dto);
+	public ResponseEntity<ClientDTO> update(@PathVariable Long id, @RequestBody ClientDTO dto,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		dto = service.update(id, dto, ifMatchVersions(ifMatch, id));
+		return ResponseEntity.ok().eTag(eTag(dto)).body(dto);
+	}
+	
+	/* Mudança
+	 * JSON merge patch (RFC 7396): só os campos enviados são alterados; um campo com null passa a ser null.
+	 * O id não pode ser alterado. If-Match e "version" funcionam como no PUT.
+	 */
+	@QueryBudget(2)
+	@PatchMapping(value = "/{id}", consumes = { MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+	public ResponseEntity<ClientDTO> patch(@PathVariable Long id, @RequestBody JsonNode patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		if (!patch.isObject()) {
+			throw new BadRequestException("Merge patch must be a JSON object");
+		}
+		Set<String> fields = new LinkedHashSet<>();
+		patch.fieldNames().forEachRemaining(fields::add);
+		ClientDTO values;
+		try {
+			values = objectMapper.treeToValue(patch, ClientDTO.class);
+		} catch (JsonProcessingException e) {
+			throw new BadRequestException("Invalid merge patch");
+		}
+		ClientDTO dto = service.patch(id, values, fields, ifMatchVersions(ifMatch, id));
+		return ResponseEntity.ok().eTag(eTag(dto)).body(dto);
+	}
+	
+	/* Mudança
+	 * Alteração de income em lote: [{"id": 1, "income": 1500.0}, ...], aplicada num único UPDATE
+	 * em lote. Retorna o resultado de cada linha (UPDATED ou FAILED).
+	 */
+	@QueryBudget(1)
+	@PatchMapping(value = "/income", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<List<BatchResultDTO>> updateIncomes(@RequestBody List<IncomeChangeDTO> changes) {
+		List<BatchResultDTO> results = service.updateIncomes(changes);
+		return ResponseEntity.ok().body(results);
 	}
 	
+	@QueryBudget(2)
 	@DeleteMapping(value = "/{id}")
 	public ResponseEntity<ClientDTO> delete(@PathVariable Long id) {
 		service.delete(id);
 		return ResponseEntity.noContent().build();
 	}
+	
+	/*
+	 * Padrão do like de cpf. Curingas digitados (% e _) são escapados e comparados literalmente,
+	 * então no modo prefix a busca continua sendo um intervalo do índice.
+	 */
+	private static String cpfPattern(String cpf, String mode) {
+		return isPrefixMode(mode) ? LikePatterns.startingWith(cpf) : LikePatterns.containing(cpf);
+	}
+	
+	private static boolean isPrefixMode(String mode) {
+		if (mode.equalsIgnoreCase("prefix")) {
+			return true;
+		}
+		if (mode.equalsIgnoreCase("contains")) {
+			return false;
+		}
+		throw new BadRequestException("Invalid mode " + mode);
+	}
+	
+	/*
+	 * ETag fraco de um cliente: id e versão.
+	 */
+	private static String eTag(ClientDTO dto) {
+		return "W/\"" + dto.getId() + "-" + dto.getVersion() + "\"";
+	}
+	
+	/*
+	 * ETag fraco de uma página: hash dos pares id/versão do conteúdo (ou do próprio item, no
+	 * sparse fieldset) e dos dados da página. Qualquer alteração nos clientes da página muda a versão.
+	 */
+	private static String eTag(Page<?> page) {
+		long hash = Objects.hash(page.getNumber(), page.getSize(), page.getTotalElements(), page.getSort());
+		for (Object item : page.getContent()) {
+			hash = 31 * hash + (item instanceof ClientDTO
+					? Objects.hash(((ClientDTO) item).getId(), ((ClientDTO) item).getVersion())
+					: Objects.hashCode(item));
+		}
+		return "W/\"" + Long.toHexString(hash) + "\"";
+	}
+	
+	/*
+	 * Versões aceitas pelo If-Match para este id; null quando não há If-Match ou ele é "*".
+	 * A comparação é feita pela versão, então ETags fracos também são aceitos.
+	 */
+	private static Set<Long> ifMatchVersions(String ifMatch, Long id) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+		Set<Long> versions = new HashSet<>();
+		for (String tag : ifMatch.split(",")) {
+			String value = tag.trim();
+			if (value.startsWith("W/")) {
+				value = value.substring(2);
+			}
+			value = value.replace("\"", "");
+			int dash = value.lastIndexOf('-');
+			if (dash > 0 && value.substring(0, dash).equals(String.valueOf(id))) {
+				try {
+					versions.add(Long.valueOf(value.substring(dash + 1)));
+				} catch (NumberFormatException e) {
+					// ETag de outro formato: não corresponde a nenhuma versão
+				}
+			}
+		}
+		return versions;
+	}
+	
+	private ResponseEntity<Slice<ClientDTO>> sliceResponse(Slice<ClientDTO> list, Long approximateTotal) {
+		if (approximateTotal == null) {
+			return ResponseEntity.ok().body(list);
+		}
+		return ResponseEntity.ok().header("X-Total-Count-Approximate", String.valueOf(approximateTotal)).body(list);
+	}
+	
+	/*
+	 * Lê o NDJSON sob demanda, uma linha por vez, ignorando linhas em branco.
+	 * Linhas que não são um ClientDTO válido viram null (o service marca como FAILED).
+	 */
+	private class NdjsonIterator implements Iterator<ClientDTO> {
+		private final BufferedReader reader;
+		private String nextLine;
+
+		private NdjsonIterator(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (nextLine == null) {
+					String line = reader.readLine();
+					if (line == null) {
+						return false;
+					}
+					if (!line.isBlank()) {
+						nextLine = line;
+					}
+				}
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public ClientDTO next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String line = nextLine;
+			nextLine = null;
+			try {
+				return objectMapper.readValue(line, ClientDTO.class);
+			} catch (JsonProcessingException e) {
+				return null;
+			}
+		}
+	}
+	
+	private static void write(BufferedWriter writer, String line) {
+		try {
+			writer.write(line);
+			writer.write('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private String toJson(ClientDTO dto) {
+		try {
+			return objectMapper.writeValueAsString(dto);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static String toCsv(ClientDTO dto) {
+		return dto.getId() + "," + csv(dto.getName()) + "," + csv(dto.getCpf()) + ","
+				+ csv(dto.getIncome()) + "," + csv(dto.getBirthDate()) + "," + csv(dto.getChildren());
+	}
+	
+	private static String csv(Object value) {
+		if (value == null) {
+			return "";
+		}
+		String text = value.toString();
+		if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		return "\"" + text.replace("\"", "\"\"") + "\"";
+	}
 }
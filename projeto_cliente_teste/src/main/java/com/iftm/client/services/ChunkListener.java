@@ -0,0 +1,17 @@
+package com.iftm.client.services;
+
+/*
+ * Acompanha operações feitas em blocos (inserção em lote e purge): chunkDone é chamado
+ * depois do commit de cada bloco e isCancelled é consultado antes de começar o próximo.
+ */
+public interface ChunkListener {
+
+	ChunkListener NONE = processed -> {
+	};
+
+	void chunkDone(long processed);
+
+	default boolean isCancelled() {
+		return false;
+	}
+}
@@ -0,0 +1,88 @@
+package com.iftm.client.services;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.iftm.client.dto.ClientDTO;
+
+/*
+ * Cache read-through de ClientService.findById, limitado por tamanho e TTL
+ * (client.cache.maximum-size / client.cache.ttl) e desligável com client.cache.enabled=false.
+ *
+ * Para não guardar um valor velho quando uma escrita acontece durante a leitura do banco,
+ * cada faixa de ids tem um contador de invalidações: a leitura anota o contador antes de ir
+ * ao banco e só grava no cache se ninguém invalidou aquele id nesse meio tempo.
+ */
+@Component
+public class ClientCache {
+
+	private static final int STRIPES = 1024;
+
+	private final boolean enabled;
+	private final Cache<Long, ClientDTO> cache;
+	private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+	public ClientCache(@Value("${client.cache.enabled:true}") boolean enabled,
+			@Value("${client.cache.maximum-size:10000}") long maximumSize,
+			@Value("${client.cache.ttl:PT10M}") Duration ttl) {
+		this.enabled = enabled;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	public ClientDTO get(Long id, Function<Long, ClientDTO> loader) {
+		if (!enabled) {
+			return loader.apply(id);
+		}
+		ClientDTO cached = cache.getIfPresent(id);
+		if (cached != null) {
+			return cached;
+		}
+		long stamp = generations.get(stripe(id));
+		ClientDTO loaded = loader.apply(id);
+		cache.asMap().compute(id, (key, current) -> generations.get(stripe(key)) == stamp ? loaded : current);
+		return loaded;
+	}
+
+	public void invalidate(Long id) {
+		cache.asMap().compute(id, (key, current) -> {
+			generations.incrementAndGet(stripe(key));
+			return null;
+		});
+	}
+
+	public void invalidateAll() {
+		for (int i = 0; i < STRIPES; i++) {
+			generations.incrementAndGet(i);
+		}
+		cache.invalidateAll();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	public Cache<Long, ClientDTO> getNativeCache() {
+		return cache;
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onClientChanged(ClientChangedEvent event) {
+		invalidate(event.getId());
+	}
+
+	private static int stripe(Long id) {
+		return (Long.hashCode(id) & 0x7fffffff) % STRIPES;
+	}
+}
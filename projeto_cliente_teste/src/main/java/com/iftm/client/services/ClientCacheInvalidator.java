@@ -0,0 +1,96 @@
+package com.iftm.client.services;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+
+/*
+ * Mantém o cache de segundo nível coerente com escritas que o Hibernate não vê e entre instâncias:
+ * - INCOME_UPDATED (UPDATE em lote via JDBC): remove o cliente e as consultas em cache desta instância;
+ * - toda escrita local é enviada pelo ClientInvalidationChannel, se ligado (client.invalidation.enabled);
+ * - uma mensagem de outra instância remove o cliente do cache de segundo nível, as consultas em cache
+ *   e os totais do ClientCountCache, relê o cliente do primário e publica um ClientChangedEvent remoto
+ *   (UPDATED/INSERTED com o cliente relido, ou DELETED se ele não existe mais), para que o ClientCache,
+ *   o ClientSearchIndex e o ClientColumnarSnapshot desta instância acompanhem a escrita.
+ */
+@Component
+public class ClientCacheInvalidator {
+
+	private final Cache cache;
+	private final ClientCache clientCache;
+	private final ClientCountCache countCache;
+	private final ClientInvalidationChannel channel;
+	private final ClientRepository repository;
+	private final TransactionTemplate primaryTx;
+	private final ApplicationEventPublisher publisher;
+
+	public ClientCacheInvalidator(EntityManagerFactory emf, ClientCache clientCache, ClientCountCache countCache,
+			ObjectProvider<ClientInvalidationChannel> channel, ClientRepository repository,
+			PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher) {
+		this.cache = emf.getCache().unwrap(Cache.class);
+		this.clientCache = clientCache;
+		this.countCache = countCache;
+		this.repository = repository;
+		// não é só leitura: com réplicas, a leitura vai ao primário, que já tem a escrita remota
+		this.primaryTx = new TransactionTemplate(transactionManager);
+		this.publisher = publisher;
+		this.channel = channel.getIfAvailable();
+		if (this.channel != null) {
+			this.channel.onMessage(this::onRemoteChange);
+		}
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onClientChanged(ClientChangedEvent event) {
+		if (event.getType() == ClientChangedEvent.Type.INCOME_UPDATED) {
+			evict(event.getId());
+		}
+		if (channel != null && !event.isRemote()) {
+			channel.publish(event.getType(), event.getId());
+		}
+	}
+
+	void onRemoteChange(ClientInvalidationChannel.Message message) {
+		Long id = message.getId();
+		evict(id);
+		clientCache.invalidate(id);
+		countCache.clear();
+		Optional<ClientDTO> client = message.getType() == ClientChangedEvent.Type.DELETED ? Optional.empty()
+				: primaryTx.execute(status -> repository.findById(id).map(ClientDTO::new));
+		ClientChangedEvent.Type type = message.getType() == ClientChangedEvent.Type.INSERTED
+				? ClientChangedEvent.Type.INSERTED : ClientChangedEvent.Type.UPDATED;
+		publisher.publishEvent(client.isPresent() ? ClientChangedEvent.remote(type, id, client.get())
+				: ClientChangedEvent.remote(ClientChangedEvent.Type.DELETED, id, null));
+	}
+
+	/*
+	 * Para quem grava por JDBC fora dos eventos INCOME_UPDATED (ClientWriteBehindBuffer).
+	 */
+	public void evict(Collection<Long> ids) {
+		ids.forEach(id -> cache.evictEntityData(Client.class, id));
+		evictQueries();
+	}
+
+	private void evict(Long id) {
+		cache.evictEntityData(Client.class, id);
+		evictQueries();
+	}
+
+	private void evictQueries() {
+		cache.evictQueryRegion(ClientRepository.QUERY_CACHE_REGION);
+		cache.evictDefaultQueryRegion();
+	}
+}
@@ -0,0 +1,80 @@
+package com.iftm.client.services;
+
+import com.iftm.client.dto.ClientDTO;
+
+/*
+ * Publicado pelo ClientService a cada escrita. Quem mantém cópias dos dados (caches, índices)
+ * escuta com @TransactionalEventListener, que só dispara depois do commit.
+ * client é nulo em DELETED e em INCOME_UPDATED (income alterado em lote, sem reler o cliente);
+ * em INCOME_UPDATED, income traz o novo valor e a versão do cliente subiu uma vez.
+ * remote: escrita de outra instância, republicada aqui pelo ClientCacheInvalidator (com o cliente
+ * relido do banco); não volta ao ClientInvalidationChannel.
+ */
+public class ClientChangedEvent {
+
+	public enum Type {
+		INSERTED, UPDATED, INCOME_UPDATED, DELETED
+	}
+
+	private final Type type;
+	private final Long id;
+	private final ClientDTO client;
+	private final Double income;
+	private final boolean remote;
+
+	public ClientChangedEvent(Type type, Long id, ClientDTO client) {
+		this(type, id, client, null);
+	}
+
+	public ClientChangedEvent(Type type, Long id, ClientDTO client, Double income) {
+		this(type, id, client, income, false);
+	}
+
+	private ClientChangedEvent(Type type, Long id, ClientDTO client, Double income, boolean remote) {
+		this.type = type;
+		this.id = id;
+		this.client = client;
+		this.income = income;
+		this.remote = remote;
+	}
+
+	public static ClientChangedEvent inserted(ClientDTO client) {
+		return new ClientChangedEvent(Type.INSERTED, client.getId(), client);
+	}
+
+	public static ClientChangedEvent updated(ClientDTO client) {
+		return new ClientChangedEvent(Type.UPDATED, client.getId(), client);
+	}
+
+	public static ClientChangedEvent incomeUpdated(Long id, Double income) {
+		return new ClientChangedEvent(Type.INCOME_UPDATED, id, null, income);
+	}
+
+	public static ClientChangedEvent deleted(Long id) {
+		return new ClientChangedEvent(Type.DELETED, id, null);
+	}
+
+	public static ClientChangedEvent remote(Type type, Long id, ClientDTO client) {
+		return new ClientChangedEvent(type, id, client, null, true);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public ClientDTO getClient() {
+		return client;
+	}
+
+	public Double getIncome() {
+		return income;
+	}
+
+	public boolean isRemote() {
+		return remote;
+	}
+}
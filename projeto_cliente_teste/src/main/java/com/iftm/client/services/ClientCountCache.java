@@ -0,0 +1,46 @@
+package com.iftm.client.services;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*
+ * Guarda o resultado de consultas COUNT(*) por um tempo (client.count-cache.ttl), limitado a
+ * client.count-cache.maximum-size totais. O total devolvido é aproximado: inserções e exclusões
+ * feitas dentro do TTL não aparecem.
+ * As chaves de cpfLike vêm do texto digitado: chaves maiores que MAX_KEY_LENGTH (mais que um cpf
+ * inteiro com os curingas e escapes) não casam com nenhum cpf de 11 dígitos e não entram no cache,
+ * e as demais disputam o espaço pela frequência de uso (o Caffeine não deixa uma chave vista uma
+ * vez só tirar do cache as mais usadas).
+ */
+@Component
+public class ClientCountCache {
+
+	private static final int MAX_KEY_LENGTH = 48;
+
+	private final Cache<String, Long> counts;
+
+	public ClientCountCache(@Value("${client.count-cache.ttl:PT1M}") Duration ttl,
+			@Value("${client.count-cache.maximum-size:1000}") long maximumSize) {
+		this.counts = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttl)
+				.build();
+	}
+
+	public long get(String key, LongSupplier counter) {
+		if (key.length() > MAX_KEY_LENGTH) {
+			return counter.getAsLong();
+		}
+		return counts.get(key, k -> counter.getAsLong());
+	}
+
+	public void clear() {
+		counts.invalidateAll();
+	}
+}
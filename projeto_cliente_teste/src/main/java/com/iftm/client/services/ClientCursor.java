@@ -0,0 +1,89 @@
+package com.iftm.client.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.springframework.data.domain.Sort.Direction;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.ClientSeek;
+import com.iftm.client.services.exceptions.BadRequestException;
+
+/*
+ * Codifica/decodifica o token opaco da paginação por keyset.
+ * Formato (antes do Base64 url-safe): "<orderBy>|<id>|<valor>", onde <valor> é
+ * "=" seguido do texto do valor, ou vazio quando o valor de orderBy é nulo.
+ */
+final class ClientCursor {
+
+	private ClientCursor() {
+	}
+
+	static ClientSeek decode(String token, String orderBy, Direction direction, int size) {
+		Class<?> type = ClientSeek.SORTABLE_FIELDS.get(orderBy);
+		if (type == null) {
+			throw new BadRequestException("Invalid orderBy " + orderBy);
+		}
+		if (size < 1) {
+			throw new BadRequestException("Invalid linesPerPage " + size);
+		}
+		if (token == null || token.isEmpty()) {
+			return new ClientSeek(orderBy, direction, null, null, size);
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\\|", 3);
+			if (parts.length != 3 || !parts[0].equals(orderBy)) {
+				throw new BadRequestException("Invalid cursor");
+			}
+			Long lastId = Long.valueOf(parts[1]);
+			Object lastValue = parts[2].isEmpty() ? null : parse(type, parts[2].substring(1));
+			return new ClientSeek(orderBy, direction, lastValue, lastId, size);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new BadRequestException("Invalid cursor");
+		}
+	}
+
+	static String encode(ClientDTO last, String orderBy) {
+		Object value = valueOf(last, orderBy);
+		String raw = orderBy + "|" + last.getId() + "|" + (value == null ? "" : "=" + value);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Object parse(Class<?> type, String text) {
+		if (type == Long.class) {
+			return Long.valueOf(text);
+		}
+		if (type == Double.class) {
+			return Double.valueOf(text);
+		}
+		if (type == Integer.class) {
+			return Integer.valueOf(text);
+		}
+		if (type == Instant.class) {
+			return Instant.parse(text);
+		}
+		return text;
+	}
+
+	private static Object valueOf(ClientDTO client, String orderBy) {
+		switch (orderBy) {
+		case "id":
+			return client.getId();
+		case "name":
+			return client.getName();
+		case "cpf":
+			return client.getCpf();
+		case "income":
+			return client.getIncome();
+		case "birthDate":
+			return client.getBirthDate();
+		case "children":
+			return client.getChildren();
+		default:
+			throw new BadRequestException("Invalid orderBy " + orderBy);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.iftm.client.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/*
+ * Canal de invalidação entre instâncias: cada mensagem é um datagrama UDP multicast
+ * "<instância> <tipo> <id>" enviado ao grupo (client.invalidation.group/port). Todas as instâncias
+ * no grupo recebem; as mensagens da própria instância são descartadas. Cada mensagem recebida é
+ * entregue a todos os listeners registrados em onMessage.
+ * A entrega não é garantida (UDP): os TTLs das regiões limitam por quanto tempo um valor velho
+ * pode sobreviver a uma mensagem perdida.
+ */
+public class ClientInvalidationChannel implements Closeable {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientInvalidationChannel.class);
+
+	private final String node = UUID.randomUUID().toString();
+	private final InetSocketAddress group;
+	private final NetworkInterface networkInterface;
+	private final MulticastSocket socket;
+	private final List<Consumer<Message>> listeners = new CopyOnWriteArrayList<>();
+
+	public ClientInvalidationChannel(String group, int port, String networkInterface) {
+		try {
+			this.group = new InetSocketAddress(InetAddress.getByName(group), port);
+			this.networkInterface = networkInterface.isEmpty() ? null : NetworkInterface.getByName(networkInterface);
+			this.socket = new MulticastSocket(port);
+			if (this.networkInterface != null) {
+				socket.setNetworkInterface(this.networkInterface);
+			}
+			socket.joinGroup(this.group, this.networkInterface);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not join invalidation group " + group + ":" + port, e);
+		}
+		Thread receiver = new Thread(this::receive, "client-invalidation");
+		receiver.setDaemon(true);
+		receiver.start();
+	}
+
+	public void onMessage(Consumer<Message> listener) {
+		listeners.add(listener);
+	}
+
+	public void publish(ClientChangedEvent.Type type, Long id) {
+		byte[] data = (node + " " + type + " " + id).getBytes(StandardCharsets.UTF_8);
+		try {
+			socket.send(new DatagramPacket(data, data.length, group));
+		} catch (IOException e) {
+			log.warn("Could not publish invalidation of client {}", id, e);
+		}
+	}
+
+	@Override
+	public void close() {
+		socket.close();
+	}
+
+	private void receive() {
+		byte[] buffer = new byte[512];
+		while (!socket.isClosed()) {
+			DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+			try {
+				socket.receive(packet);
+				String[] parts = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).split(" ");
+				if (parts.length == 3 && !node.equals(parts[0])) {
+					Message message = new Message(ClientChangedEvent.Type.valueOf(parts[1]), Long.valueOf(parts[2]));
+					listeners.forEach(listener -> listener.accept(message));
+				}
+			} catch (SocketException e) {
+				// socket fechado
+			} catch (IOException | RuntimeException e) {
+				log.warn("Invalid invalidation message", e);
+			}
+		}
+	}
+
+	public static class Message {
+
+		private final ClientChangedEvent.Type type;
+		private final Long id;
+
+		public Message(ClientChangedEvent.Type type, Long id) {
+			this.type = type;
+			this.id = id;
+		}
+
+		public ClientChangedEvent.Type getType() {
+			return type;
+		}
+
+		public Long getId() {
+			return id;
+		}
+	}
+}
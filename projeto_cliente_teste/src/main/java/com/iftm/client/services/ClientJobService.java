@@ -0,0 +1,229 @@
+package com.iftm.client.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.iftm.client.dto.JobDTO;
+import com.iftm.client.dto.JobRequestDTO;
+import com.iftm.client.services.exceptions.BadRequestException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import com.iftm.client.services.exceptions.TooManyRequestsException;
+
+/*
+ * Executa importações e purges longos fora das threads do Tomcat.
+ * Os jobs rodam em client.jobs.threads threads com uma fila de até client.jobs.queue-capacity
+ * jobs; com a fila cheia o pedido é recusado (TooManyRequestsException, HTTP 429).
+ * Uma importação aceita no máximo client.jobs.max-clients clientes, que ficam em memória até o job rodar.
+ * Jobs terminados ficam consultáveis por client.jobs.retention.
+ */
+@Service
+public class ClientJobService {
+
+	private final ClientService service;
+	private final ThreadPoolExecutor executor;
+	private final Duration retention;
+	private final int maxClients;
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ClientJobService(ClientService service,
+			@Value("${client.jobs.threads:2}") int threads,
+			@Value("${client.jobs.queue-capacity:20}") int queueCapacity,
+			@Value("${client.jobs.retention:PT1H}") Duration retention,
+			@Value("${client.jobs.max-clients:10000}") int maxClients) {
+		this.service = service;
+		this.retention = retention;
+		this.maxClients = maxClients;
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = r -> {
+			Thread thread = new Thread(r, "client-job-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), factory, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	public JobDTO submit(JobRequestDTO request) {
+		long total = validate(request);
+		removeExpired();
+		Job job = new Job(UUID.randomUUID().toString(), request.getType(), total);
+		jobs.put(job.id, job);
+		try {
+			job.future = executor.submit(() -> run(job, request));
+		} catch (RejectedExecutionException e) {
+			jobs.remove(job.id);
+			throw new TooManyRequestsException("Job queue is full");
+		}
+		return job.toDTO();
+	}
+
+	public JobDTO findById(String id) {
+		return find(id).toDTO();
+	}
+
+	/*
+	 * Um job na fila é cancelado na hora; um job rodando para ao terminar o bloco atual.
+	 */
+	public JobDTO cancel(String id) {
+		Job job = find(id);
+		Future<?> future = job.future;
+		if (job.cancelQueued() && future != null) {
+			future.cancel(false);
+			executor.purge();
+		}
+		return job.toDTO();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/*
+	 * Qualquer falha, inclusive um Error, leva o job a FAILED; o Error continua subindo
+	 * depois de registrado.
+	 */
+	private void run(Job job, JobRequestDTO request) {
+		if (!job.start()) {
+			return;
+		}
+		try {
+			Object result;
+			if (request.getType() == JobDTO.Type.IMPORT) {
+				result = service.insertBatch(request.getClients().iterator(), job);
+			} else {
+				result = service.purgeByIncomeGreaterThan(request.getIncomeGreaterThan(), job);
+			}
+			job.finish(job.isCancelled() ? JobDTO.Status.CANCELLED : JobDTO.Status.SUCCEEDED, result, null);
+		} catch (Throwable e) {
+			job.finish(JobDTO.Status.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+			if (e instanceof Error) {
+				throw (Error) e;
+			}
+		}
+	}
+
+	private long validate(JobRequestDTO request) {
+		if (request == null || request.getType() == null) {
+			throw new BadRequestException("Job type is required");
+		}
+		if (request.getType() == JobDTO.Type.IMPORT) {
+			if (request.getClients() == null) {
+				throw new BadRequestException("clients is required for IMPORT");
+			}
+			if (request.getClients().size() > maxClients) {
+				throw new BadRequestException("clients must have at most " + maxClients + " items");
+			}
+			return request.getClients().size();
+		}
+		if (request.getIncomeGreaterThan() == null) {
+			throw new BadRequestException("incomeGreaterThan is required for PURGE");
+		}
+		return service.countByIncomeGreaterThanApproximate(request.getIncomeGreaterThan());
+	}
+
+	private Job find(String id) {
+		Job job = jobs.get(id);
+		if (job == null) {
+			throw new ResourceNotFoundException("Job not found " + id);
+		}
+		return job;
+	}
+
+	private void removeExpired() {
+		Instant limit = Instant.now().minus(retention);
+		jobs.values().removeIf(job -> job.finishedBefore(limit));
+	}
+
+	/*
+	 * Estado de um job. As transições de status são sincronizadas; processed e cancelled
+	 * são lidos pelas threads das requisições enquanto o job roda.
+	 */
+	private static class Job implements ChunkListener {
+
+		private final String id;
+		private final JobDTO.Type type;
+		private final long total;
+		private final Instant createdAt = Instant.now();
+		private volatile long processed;
+		private volatile boolean cancelled;
+		private volatile Future<?> future;
+		private JobDTO.Status status = JobDTO.Status.QUEUED;
+		private Instant startedAt;
+		private Instant finishedAt;
+		private Object result;
+		private String error;
+
+		Job(String id, JobDTO.Type type, long total) {
+			this.id = id;
+			this.type = type;
+			this.total = total;
+		}
+
+		@Override
+		public void chunkDone(long processed) {
+			this.processed = processed;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		synchronized boolean start() {
+			if (status != JobDTO.Status.QUEUED) {
+				return false;
+			}
+			status = JobDTO.Status.RUNNING;
+			startedAt = Instant.now();
+			return true;
+		}
+
+		synchronized void finish(JobDTO.Status status, Object result, String error) {
+			this.status = status;
+			this.result = result;
+			this.error = error;
+			this.finishedAt = Instant.now();
+		}
+
+		/*
+		 * Marca o job como cancelado; retorna true se ele ainda estava na fila.
+		 */
+		synchronized boolean cancelQueued() {
+			if (finishedAt != null) {
+				return false;
+			}
+			cancelled = true;
+			if (status == JobDTO.Status.QUEUED) {
+				finish(JobDTO.Status.CANCELLED, null, null);
+				return true;
+			}
+			return false;
+		}
+
+		synchronized boolean finishedBefore(Instant limit) {
+			return finishedAt != null && finishedAt.isBefore(limit);
+		}
+
+		synchronized JobDTO toDTO() {
+			return new JobDTO(id, type, status, total, processed, createdAt, startedAt, finishedAt, result, error);
+		}
+	}
+}
@@ -1,88 +1,629 @@
 package com.iftm.client.services;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import javax.persistence.EntityNotFoundException;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PessimisticLockException;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.iftm.client.config.SingleFlight;
+import com.iftm.client.dto.BatchResultDTO;
 import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.dto.CursorPageDTO;
+import com.iftm.client.dto.IncomeChangeDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.dto.PurgeResultDTO;
 import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.Accents;
 import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.repositories.ClientSeek;
+import com.iftm.client.repositories.ClientSpecifications;
+import com.iftm.client.repositories.LikePatterns;
+import com.iftm.client.repositories.sharding.ShardFilter;
+import com.iftm.client.repositories.sharding.ShardedClientRepository;
+import com.iftm.client.services.exceptions.BadRequestException;
+import com.iftm.client.services.exceptions.ConflictException;
 import com.iftm.client.services.exceptions.DatabaseException;
+import com.iftm.client.services.exceptions.PreconditionFailedException;
+import com.iftm.client.services.analytics.ClientColumnarSnapshot;
+import com.iftm.client.services.search.ClientSearchIndex;
 import com.iftm.client.services.exceptions.ResourceNotFoundException;
 
 @Service
 public class ClientService {
 	
+	private static final int[] PERCENTILES = { 50, 90, 95, 99 };
+	private static final Set<String> PATCHABLE_FIELDS = Set.of("name", "cpf", "income", "birthDate", "children", "version");
+	
 	@Autowired
 	private ClientRepository repository;
 	
+	@Autowired
+	private ClientCountCache countCache;
+	
+	@Autowired
+	private ClientCache cache;
+	
+	@Autowired
+	private ApplicationEventPublisher publisher;
+	
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	
+	@Autowired
+	private ClientSearchIndex searchIndex;
+	
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	
+	/*
+	 * Presente só com client.sharding.enabled=true: todas as leituras e escritas passam a usar os
+	 * shards (consultas por scatter-gather, lotes e purge por shard) e o banco único não é consultado.
+	 * A cópia colunar é montada a partir do banco único, então fica de fora; o ClientSearchIndex
+	 * nem é montado (isReady() é sempre false).
+	 */
+	@Autowired(required = false)
+	private ShardedClientRepository shards;
+	
+	/*
+	 * Presente só com client.write-behind.enabled=true: ver update(Long, ClientDTO, Set).
+	 */
+	@Autowired(required = false)
+	private ClientWriteBehindBuffer writeBehind;
+	
+	/*
+	 * Com client.analytics.enabled=true (e sem sharding), findByIncomeGreaterThan, search e
+	 * incomeStats são respondidos pela cópia colunar em memória em vez do banco. Esses métodos não
+	 * são @Transactional, para não pegar uma conexão quando nem vão ao banco; as consultas que usam
+	 * no banco abrem a sua própria transação somente leitura (ver ClientRepository).
+	 */
+	@Autowired
+	private ClientColumnarSnapshot snapshot;
+	
+	@PersistenceContext
+	private EntityManager em;
+	
+	@Value("${client.batch.chunk-size:500}")
+	private int batchChunkSize;
+	
+	@Value("${client.search-index.max-in-list:1000}")
+	private int searchMaxInList;
+	
+	@Value("${client.update.lock-retries:3}")
+	private int lockRetries;
+	
+	@Value("${client.search-index.min-prefix:3}")
+	private int searchMinPrefix;
+	
+	@Value("${client.purge.chunk-size:1000}")
+	private int purgeChunkSize;
+	
+	@Value("${client.stats.percentile-buckets:1000}")
+	private int percentileBuckets;
+	
 	@Transactional(readOnly = true)
+	@SingleFlight
 	public Page<ClientDTO> findAllPaged(PageRequest pageRequest) {
-		Page<Client> list =  repository.findAll(pageRequest);
-		return list.map(x -> new ClientDTO(x));
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findAll(ShardFilter.all(), pageRequest);
+		}
+		return repository.findAllDto(pageRequest);
 	}
 	
+	/*
+	 * Sparse fieldset: retorna só os campos pedidos (ex.: fields=id,name), um Map por cliente.
+	 */
 	@Transactional(readOnly = true)
+	public Page<Map<String, Object>> findAllPaged(PageRequest pageRequest, Collection<String> fields) {
+		for (String field : fields) {
+			if (!ClientSeek.SORTABLE_FIELDS.containsKey(field)) {
+				throw new BadRequestException("Invalid field " + field);
+			}
+		}
+		checkSort(pageRequest);
+		if (shards != null) {
+			return shards.findAllFields(fields, pageRequest);
+		}
+		return repository.findAllFields(fields, pageRequest);
+	}
+	
+	/*
+	 * Sem @Transactional aqui: um acerto no ClientCache não deve abrir transação nem pegar conexão.
+	 * Em caso de falta, repository.findDtoById já roda na sua própria transação somente leitura.
+	 */
 	public ClientDTO findById(Long id) {
-		Optional<Client> obj = repository.findById(id);
-		Client entity = obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-		return new ClientDTO(entity);
+		ClientDTO pending = writeBehind != null ? writeBehind.pending(id) : null;
+		if (pending != null) {
+			return pending;
+		}
+		return cache.get(id, key -> {
+			Optional<ClientDTO> obj = shards != null ? shards.findById(key) : repository.findDtoById(key);
+			return obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+		});
 	}
 
+	/*
+	 * Busca pelo cpf exato. Com shards por cpf vai a um shard só; por faixa de id, ao registro de cpfs.
+	 */
+	@Transactional(readOnly = true)
+	public ClientDTO findByCpf(String cpf) {
+		Optional<ClientDTO> obj = shards != null ? shards.findByCpf(cpf) : repository.findByCpf(cpf).map(ClientDTO::new);
+		return obj.orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+	}
+	
 	/*
 	 * Método proposto para trabalhar com novas funcionalidades na atividade de Mockito
 	 */
 	@Transactional(readOnly = true)
+	@SingleFlight
 	public Page<ClientDTO> findByIncome(PageRequest pageRequest, Double income) {
-		Page<Client> list = repository.findByIncome(income, pageRequest);		
-		return list.map(x -> new ClientDTO(x));
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findAll(ShardFilter.incomeEquals(income), pageRequest);
+		}
+		return repository.findDtoByIncome(income, pageRequest);
 	}
 	
 	/*
 	 * Método proposto para trabalhar com novas funcionalidades na atividade de Mockito
 	 */
-	@Transactional(readOnly = true)
+	@SingleFlight
 	public Page<ClientDTO> findByIncomeGreaterThan(PageRequest pageRequest, Double income) {
-		Page<Client> list = repository.findByIncomeGreaterThan(income, pageRequest);		
-		return list.map(x -> new ClientDTO(x));
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findAll(ShardFilter.incomeGreaterThan(income), pageRequest);
+		}
+		if (income != null && useSnapshot()) {
+			checkSort(pageRequest);
+			return snapshot.findByIncomeGreaterThan(income, pageRequest);
+		}
+		return repository.findDtoByIncomeGreaterThan(income, pageRequest);
 	}
 	
 	@Transactional(readOnly = true)
+	@SingleFlight
 	public Page<ClientDTO> findByCpfLike(PageRequest pageRequest, String cpf) {
-		Page<Client> list = repository.findByCpfLike(cpf, pageRequest);
-		return list.map(x -> new ClientDTO(x));
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findAll(ShardFilter.cpfLike(cpf), pageRequest);
+		}
+		return repository.findDtoByCpfLike(cpf, pageRequest);
+	}
+	
+	/*
+	 * Busca por cpf/nome, por prefixo ou por trecho. Com o ClientSearchIndex pronto, os ids saem
+	 * do índice em memória e o banco só carrega os clientes da página; sem ele, usa like no banco.
+	 * Nos dois casos o texto é comparado literalmente (% e _ são escapados por LikePatterns).
+	 */
+	@Transactional(readOnly = true)
+	public Page<ClientDTO> searchByCpf(PageRequest pageRequest, String cpf, boolean prefix) {
+		String pattern = prefix ? LikePatterns.startingWith(cpf) : LikePatterns.containing(cpf);
+		Supplier<Page<ClientDTO>> database = () -> findByCpfLike(pageRequest, pattern);
+		// prefixo curto casa quase a tabela toda; o banco percorre só a página pelo índice único de cpf
+		if (!searchIndex.isReady() || (prefix && cpf.length() < searchMinPrefix)) {
+			return database.get();
+		}
+		long[] ids = prefix ? searchIndex.cpfStartingWith(cpf) : searchIndex.cpfContaining(cpf);
+		return pageOfIds(ids, pageRequest, database);
+	}
+	
+	@Transactional(readOnly = true)
+	public Page<ClientDTO> searchByName(PageRequest pageRequest, String name, boolean prefix) {
+		String plain = Accents.strip(name);
+		String pattern = prefix ? LikePatterns.startingWith(plain) : LikePatterns.containing(plain);
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findAll(ShardFilter.nameLike(pattern), pageRequest);
+		}
+		Supplier<Page<ClientDTO>> database = () -> repository.findByNameLikeIgnoreCase(pattern, pageRequest);
+		if (!searchIndex.isReady()) {
+			return database.get();
+		}
+		long[] ids = prefix ? searchIndex.nameStartingWith(name) : searchIndex.nameContaining(name);
+		return pageOfIds(ids, pageRequest, database);
+	}
+	
+	/*
+	 * Busca com qualquer combinação dos filtros de ClientFilterDTO, numa única consulta
+	 * (ClientSpecifications) projetada em ClientDTO. Intervalos com mínimo maior que o máximo são recusados.
+	 */
+	public Page<ClientDTO> search(ClientFilterDTO filter, PageRequest pageRequest) {
+		checkSort(pageRequest);
+		checkRange("income", filter.getMinIncome(), filter.getMaxIncome());
+		checkRange("children", filter.getMinChildren(), filter.getMaxChildren());
+		checkRange("birthDate", filter.getBornFrom(), filter.getBornTo());
+		if (shards != null) {
+			return shards.findAll(ShardFilter.matching(filter), pageRequest);
+		}
+		if (useSnapshot()) {
+			return snapshot.search(filter, pageRequest);
+		}
+		return repository.findDtoAll(ClientSpecifications.matching(filter), pageRequest);
+	}
+	
+	/*
+	 * Listagens sem COUNT(*): retornam uma Slice (conteúdo + se há próxima página).
+	 */
+	@Transactional(readOnly = true)
+	@SingleFlight
+	public Slice<ClientDTO> findAllSliced(PageRequest pageRequest) {
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findSlice(ShardFilter.all(), pageRequest);
+		}
+		return repository.findSliceBy(pageRequest);
+	}
+	
+	@Transactional(readOnly = true)
+	@SingleFlight
+	public Slice<ClientDTO> findByIncomeSliced(PageRequest pageRequest, Double income) {
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findSlice(ShardFilter.incomeEquals(income), pageRequest);
+		}
+		return repository.findSliceByIncome(income, pageRequest);
+	}
+	
+	@Transactional(readOnly = true)
+	@SingleFlight
+	public Slice<ClientDTO> findByIncomeGreaterThanSliced(PageRequest pageRequest, Double income) {
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findSlice(ShardFilter.incomeGreaterThan(income), pageRequest);
+		}
+		return repository.findSliceByIncomeGreaterThan(income, pageRequest);
+	}
+	
+	@Transactional(readOnly = true)
+	@SingleFlight
+	public Slice<ClientDTO> findByCpfLikeSliced(PageRequest pageRequest, String cpf) {
+		if (shards != null) {
+			checkSort(pageRequest);
+			return shards.findSlice(ShardFilter.cpfLike(cpf), pageRequest);
+		}
+		return repository.findSliceByCpfLike(cpf, pageRequest);
+	}
+	
+	/*
+	 * Exportação: entrega cada cliente ao consumer à medida que é lido do banco (com shards, um shard
+	 * depois do outro, em ordem de id dentro de cada um).
+	 * A consulta já monta ClientDTOs (nada fica no contexto de persistência), então a memória
+	 * não cresce com o tamanho da tabela.
+	 */
+	@Transactional(readOnly = true)
+	public void exportAll(Consumer<ClientDTO> consumer) {
+		if (shards != null) {
+			shards.forEach(consumer);
+			return;
+		}
+		try (Stream<ClientDTO> stream = repository.streamAll()) {
+			stream.forEach(consumer);
+		}
 	}
 	
-	@Transactional
+	/*
+	 * Totais aproximados para as listagens sem COUNT(*), servidos pelo ClientCountCache.
+	 */
+	@Transactional(readOnly = true)
+	public long countAllApproximate() {
+		return countCache.get("all", () -> shards != null ? shards.count(ShardFilter.all()) : repository.count());
+	}
+	
+	@Transactional(readOnly = true)
+	public long countByIncomeApproximate(Double income) {
+		return countCache.get("income=" + income, () -> shards != null ? shards.count(ShardFilter.incomeEquals(income)) : repository.countByIncome(income));
+	}
+	
+	@Transactional(readOnly = true)
+	public long countByIncomeGreaterThanApproximate(Double income) {
+		return countCache.get("incomeGreaterThan=" + income, () -> shards != null ? shards.count(ShardFilter.incomeGreaterThan(income)) : repository.countByIncomeGreaterThan(income));
+	}
+	
+	@Transactional(readOnly = true)
+	public long countByCpfLikeApproximate(String cpf) {
+		return countCache.get("cpfLike=" + cpf, () -> shards != null ? shards.count(ShardFilter.cpfLike(cpf)) : repository.countByCpfLike(cpf));
+	}
+	
+	/*
+	 * Estatísticas de income (dos clientes com income maior que o informado, ou de todos).
+	 * Os percentis são aproximados: saem de um histograma de client.stats.percentile-buckets faixas,
+	 * interpolando dentro da faixa, então o erro é no máximo (max - min) / percentile-buckets.
+	 */
+	@SingleFlight
+	public IncomeStatsDTO incomeStats(Double income, int buckets) {
+		if (buckets < 1 || buckets > percentileBuckets) {
+			throw new BadRequestException("Invalid buckets " + buckets);
+		}
+		double floor = income == null ? -Double.MAX_VALUE : income;
+		IncomeStatsDTO stats = shards != null ? shards.incomeSummary(floor)
+				: useSnapshot() ? snapshot.incomeSummary(floor) : repository.incomeSummary(floor);
+		if (stats.getCount() == 0) {
+			return stats;
+		}
+		long[] counts = incomeHistogram(floor, stats, buckets);
+		double width = bucketWidth(stats, buckets);
+		for (int i = 0; i < buckets; i++) {
+			double from = stats.getMin() + i * width;
+			double to = i == buckets - 1 ? stats.getMax() : from + width;
+			stats.getHistogram().add(new IncomeStatsDTO.Bucket(from, to, counts[i]));
+		}
+		long[] fine = incomeHistogram(floor, stats, percentileBuckets);
+		double fineWidth = bucketWidth(stats, percentileBuckets);
+		for (int p : PERCENTILES) {
+			stats.getPercentiles().put("p" + p, percentile(fine, fineWidth, stats, p / 100.0));
+		}
+		return stats;
+	}
+	
+	/*
+	 * Paginação por keyset (cursor): equivalentes dos métodos acima que não usam offset.
+	 * cursor nulo ou vazio retorna a primeira página.
+	 */
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ClientDTO> findAllSeek(String cursor, int size, Direction direction, String orderBy) {
+		ClientSeek seek = ClientCursor.decode(cursor, orderBy, direction, size);
+		return toCursorPage(shards != null ? shards.seek(ShardFilter.all(), seek) : repository.findAllSeek(seek), seek);
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ClientDTO> findByIncomeSeek(Double income, String cursor, int size, Direction direction, String orderBy) {
+		ClientSeek seek = ClientCursor.decode(cursor, orderBy, direction, size);
+		return toCursorPage(shards != null ? shards.seek(ShardFilter.incomeEquals(income), seek) : repository.findByIncomeSeek(income, seek), seek);
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ClientDTO> findByIncomeGreaterThanSeek(Double income, String cursor, int size, Direction direction, String orderBy) {
+		ClientSeek seek = ClientCursor.decode(cursor, orderBy, direction, size);
+		return toCursorPage(shards != null ? shards.seek(ShardFilter.incomeGreaterThan(income), seek) : repository.findByIncomeGreaterThanSeek(income, seek), seek);
+	}
+
+	@Transactional(readOnly = true)
+	public CursorPageDTO<ClientDTO> findByCpfLikeSeek(String cpf, String cursor, int size, Direction direction, String orderBy) {
+		ClientSeek seek = ClientCursor.decode(cursor, orderBy, direction, size);
+		return toCursorPage(shards != null ? shards.seek(ShardFilter.cpfLike(cpf), seek) : repository.findByCpfLikeSeek(cpf, seek), seek);
+	}
+
+	/*
+	 * O id do corpo é ignorado: insert sempre cria um cliente novo
+	 * (alterações passam por update, que confere a versão). Com shards, nada é aberto no banco
+	 * principal: o INSERT vai direto ao shard.
+	 */
 	public ClientDTO insert(ClientDTO dto) {
-		Client entity = dto.toEntity();
-		entity = repository.save(entity);
-		return new ClientDTO(entity);
+		try {
+			if (shards != null) {
+				ClientDTO result = shards.insert(dto);
+				publisher.publishEvent(ClientChangedEvent.inserted(result));
+				return result;
+			}
+			return transactionTemplate.execute(status -> {
+				Client entity = dto.toEntity();
+				entity.setId(null);
+				ClientDTO result = new ClientDTO(repository.saveAndFlush(entity));
+				publisher.publishEvent(ClientChangedEvent.inserted(result));
+				return result;
+			});
+		} catch (DataIntegrityViolationException e) {
+			throw new DatabaseException("Integrity violation");
+		}
+	}
+	
+	/*
+	 * Inserção em lote: as linhas são gravadas em blocos de client.batch.chunk-size, cada bloco
+	 * em uma transação própria (os INSERTs vão em lotes JDBC de hibernate.jdbc.batch_size).
+	 * Se um bloco falha, ele é refeito linha a linha para identificar quais linhas têm problema.
+	 * Linhas nulas representam entradas que não puderam ser lidas e são marcadas como FAILED.
+	 */
+	public List<BatchResultDTO> insertBatch(Iterator<ClientDTO> rows) {
+		return insertBatch(rows, ChunkListener.NONE);
+	}
+	
+	/*
+	 * Igual a insertBatch(rows), avisando o listener a cada bloco gravado. Se o listener for
+	 * cancelado, para antes do próximo bloco e retorna só os resultados dos blocos já gravados.
+	 */
+	public List<BatchResultDTO> insertBatch(Iterator<ClientDTO> rows, ChunkListener listener) {
+		List<BatchResultDTO> results = new ArrayList<>();
+		List<ClientDTO> chunk = new ArrayList<>(batchChunkSize);
+		int index = 0;
+		while (rows.hasNext() && !listener.isCancelled()) {
+			chunk.add(rows.next());
+			if (chunk.size() == batchChunkSize) {
+				results.addAll(insertChunk(chunk, index));
+				index += chunk.size();
+				chunk.clear();
+				listener.chunkDone(index);
+			}
+		}
+		if (!chunk.isEmpty() && !listener.isCancelled()) {
+			results.addAll(insertChunk(chunk, index));
+			listener.chunkDone(index + chunk.size());
+		}
+		return results;
 	}
 	
-	@Transactional
 	public ClientDTO update(Long id, ClientDTO dto) {
+		return update(id, dto, null);
+	}
+	
+	/*
+	 * Atualização com controle otimista: ifMatchVersions (do If-Match; null = sem condição) são
+	 * as versões aceitas, e uma versão no dto precisa ser a atual. Se outra transação gravar
+	 * o cliente entre a leitura e o UPDATE, o @Version do Client faz o UPDATE falhar (409).
+	 *
+	 * Com write-behind, uma atualização sem versão e sem If-Match vai para o ClientWriteBehindBuffer
+	 * (fora de transação, para não segurar uma conexão enquanto espera a gravação).
+	 *
+	 * As escritas que não passam pelo buffer gravam antes os pendentes (flushWriteBehind), e fazem
+	 * isso antes de abrir a sua transação: o flush usa uma conexão própria.
+	 */
+	public ClientDTO update(Long id, ClientDTO dto, Set<Long> ifMatchVersions) {
+		if (writeBehind != null && shards == null && dto.getVersion() == null && ifMatchVersions == null) {
+			return writeBehind.submit(id, dto);
+		}
+		flushWriteBehind();
+		return writeWithRetry(id, dto.getVersion(), ifMatchVersions, entity -> updateData(entity, dto));
+	}
+	
+	/*
+	 * JSON merge patch: altera só os campos listados em fields, com os valores de values (um campo
+	 * presente com valor null passa a ser null). Com o @DynamicUpdate do Client, o UPDATE leva só
+	 * as colunas que mudaram. "version", quando presente, é conferida como no update.
+	 */
+	public ClientDTO patch(Long id, ClientDTO values, Set<String> fields, Set<Long> ifMatchVersions) {
+		for (String field : fields) {
+			if (!PATCHABLE_FIELDS.contains(field)) {
+				throw new BadRequestException("Invalid field " + field);
+			}
+		}
+		Long version = fields.contains("version") ? values.getVersion() : null;
+		flushWriteBehind();
+		return writeWithRetry(id, version, ifMatchVersions, entity -> patchData(entity, values, fields));
+	}
+	
+	/*
+	 * Alteração de income em lote: um único UPDATE em lote JDBC, sem carregar as entidades,
+	 * na mesma transação. Cada linha incrementa a versão, como o @Version faria. Linhas sem id
+	 * ou com id inexistente voltam como FAILED; as demais, como UPDATED. Com shards, é um lote
+	 * (e uma transação) por shard.
+	 */
+	public List<BatchResultDTO> updateIncomes(List<IncomeChangeDTO> changes) {
+		flushWriteBehind();
+		if (shards != null) {
+			return writeIncomes(changes);
+		}
+		return transactionTemplate.execute(status -> writeIncomes(changes));
+	}
+	
+	private List<BatchResultDTO> writeIncomes(List<IncomeChangeDTO> changes) {
+		BatchResultDTO[] results = new BatchResultDTO[changes.size()];
+		List<Integer> indexes = new ArrayList<>(changes.size());
+		List<Object[]> args = new ArrayList<>(changes.size());
+		for (int i = 0; i < changes.size(); i++) {
+			IncomeChangeDTO change = changes.get(i);
+			if (change == null || change.getId() == null) {
+				results[i] = BatchResultDTO.failed(i, "Invalid row");
+				continue;
+			}
+			indexes.add(i);
+			args.add(new Object[] { change.getIncome(), change.getId() });
+		}
+		int[] counts = args.isEmpty() ? new int[0]
+				: shards != null ? shards.updateIncomes(args)
+				: jdbcTemplate.batchUpdate("UPDATE tb_client SET income = ?, version = version + 1 WHERE id = ?", args);
+		for (int j = 0; j < counts.length; j++) {
+			int index = indexes.get(j);
+			Long id = changes.get(index).getId();
+			if (counts[j] > 0 || counts[j] == Statement.SUCCESS_NO_INFO) {
+				results[index] = BatchResultDTO.updated(index, id);
+				publisher.publishEvent(ClientChangedEvent.incomeUpdated(id, changes.get(index).getIncome()));
+			} else {
+				results[index] = BatchResultDTO.failed(index, id, "Id not found");
+			}
+		}
+		countCache.clear();
+		return Arrays.asList(results);
+	}
+	
+	/*
+	 * A escrita trava a linha (select ... for update) antes do UPDATE com @Version: escritores do
+	 * mesmo cliente esperam na leitura e já leem a versão gravada, em vez de esperar dentro do UPDATE
+	 * e reavaliar a linha (caminho em que o H2 1.4.200 pode falhar e deixar o lock preso). Se o lock
+	 * não vier dentro do LOCK_TIMEOUT do banco, a escrita é refeita numa nova transação, até
+	 * client.update.lock-retries vezes; depois disso responde 409.
+	 */
+	private ClientDTO writeWithRetry(Long id, Long version, Set<Long> ifMatchVersions, Consumer<Client> changes) {
+		if (shards != null) {
+			return writeSharded(id, version, ifMatchVersions, changes);
+		}
+		for (int attempt = 0;; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> write(id, version, ifMatchVersions, changes));
+			} catch (PessimisticLockingFailureException e) {
+				if (attempt >= lockRetries) {
+					throw new ConflictException("Client " + id + " is locked by another update");
+				}
+			}
+		}
+	}
+	
+	private ClientDTO write(Long id, Long version, Set<Long> ifMatchVersions, Consumer<Client> changes) {
+		Client entity;
 		try {
-			Client entity = repository.getOne(id);
-			updateData(entity, dto);
-			entity = repository.save(entity);
-			return new ClientDTO(entity);
-		} catch (EntityNotFoundException e) {
+			entity = em.find(Client.class, id, LockModeType.PESSIMISTIC_WRITE);
+		} catch (PessimisticLockException | LockTimeoutException e) {
+			throw new PessimisticLockingFailureException("Lock not acquired for client " + id, e);
+		}
+		if (entity == null) {
 			throw new ResourceNotFoundException("Id not found " + id);
 		}
+		try {
+			if (ifMatchVersions != null && !ifMatchVersions.contains(entity.getVersion())) {
+				throw new PreconditionFailedException("Version mismatch for id " + id);
+			}
+			if (version != null && !version.equals(entity.getVersion())) {
+				throw new ConflictException("Client " + id + " was modified (version " + entity.getVersion() + ")");
+			}
+			changes.accept(entity);
+			entity = repository.saveAndFlush(entity);
+			ClientDTO result = new ClientDTO(entity);
+			publisher.publishEvent(ClientChangedEvent.updated(result));
+			return result;
+		} catch (ConcurrencyFailureException e) {
+			// versão alterada por outra transação (ou lock não obtido a tempo)
+			throw new ConflictException("Client " + id + " was modified concurrently");
+		} catch (DataIntegrityViolationException e) {
+			throw new DatabaseException("Integrity violation");
+		}
 	}
 	
 	public void delete(Long id) {
+		flushWriteBehind();
 		try {
-			repository.deleteById(id);
+			if (shards != null) {
+				if (!shards.deleteById(id)) {
+					throw new ResourceNotFoundException("Id not found " + id);
+				}
+			} else {
+				repository.deleteById(id);
+			}
+			publisher.publishEvent(ClientChangedEvent.deleted(id));
 		} catch (EmptyResultDataAccessException e) {
 			throw new ResourceNotFoundException("Id not found " + id);
 		} catch (DataIntegrityViolationException e) {
@@ -90,6 +631,73 @@ public class ClientService {
 		}
 	}
 
+	/*
+	 * Remove os clientes com income maior que o informado em blocos de até client.purge.chunk-size
+	 * linhas, em ordem de id, cada bloco na sua própria transação: os locks duram só um bloco e uma
+	 * falha no meio mantém o que já foi removido. Cada id removido gera um ClientChangedEvent,
+	 * que tira o cliente do ClientCache e do índice de busca depois do commit do bloco.
+	 */
+	public PurgeResultDTO purgeByIncomeGreaterThan(double income) {
+		return purgeByIncomeGreaterThan(income, ChunkListener.NONE);
+	}
+	
+	public PurgeResultDTO purgeByIncomeGreaterThan(double income, ChunkListener listener) {
+		if (shards != null) {
+			return purgeSharded(income, listener);
+		}
+		long start = System.nanoTime();
+		long deleted = 0;
+		int chunks = 0;
+		long lastId = Long.MIN_VALUE;
+		while (!listener.isCancelled()) {
+			long afterId = lastId;
+			// { linhas apagadas, último id do bloco }, ou null quando não há mais linhas
+			long[] chunk = transactionTemplate.execute(status -> {
+				List<Long> ids = repository.findIdsByIncomeGreaterThan(income, afterId, PageRequest.of(0, purgeChunkSize));
+				if (ids.isEmpty()) {
+					return null;
+				}
+				int rows = repository.deleteByIdInAndIncomeGreaterThan(ids, income);
+				ids.forEach(id -> publisher.publishEvent(ClientChangedEvent.deleted(id)));
+				return new long[] { rows, ids.get(ids.size() - 1) };
+			});
+			if (chunk == null) {
+				break;
+			}
+			deleted += chunk[0];
+			chunks++;
+			lastId = chunk[1];
+			listener.chunkDone(deleted);
+		}
+		countCache.clear();
+		return new PurgeResultDTO(deleted, chunks, (System.nanoTime() - start) / 1_000_000);
+	}
+	
+	/*
+	 * Igual a purgeByIncomeGreaterThan, um shard depois do outro: cada bloco é uma transação do shard.
+	 */
+	private PurgeResultDTO purgeSharded(double income, ChunkListener listener) {
+		long start = System.nanoTime();
+		long deleted = 0;
+		int chunks = 0;
+		for (int shard = 0; shard < shards.size() && !listener.isCancelled(); shard++) {
+			long lastId = Long.MIN_VALUE;
+			while (!listener.isCancelled()) {
+				List<Long> ids = shards.deleteByIncomeGreaterThan(shard, income, lastId, purgeChunkSize);
+				if (ids.isEmpty()) {
+					break;
+				}
+				ids.forEach(id -> publisher.publishEvent(ClientChangedEvent.deleted(id)));
+				deleted += ids.size();
+				chunks++;
+				lastId = ids.get(ids.size() - 1);
+				listener.chunkDone(deleted);
+			}
+		}
+		countCache.clear();
+		return new PurgeResultDTO(deleted, chunks, (System.nanoTime() - start) / 1_000_000);
+	}
+
 	private void updateData(Client entity, ClientDTO dto) {
 		entity.setName(dto.getName());
 		entity.setCpf(dto.getCpf());
@@ -98,6 +706,245 @@ public class ClientService {
 		entity.setChildren(dto.getChildren());
 	}
 
+	/*
+	 * Igual a write, nos shards: a leitura (com lock da linha), as conferências e o UPDATE rodam numa
+	 * transação do shard do cliente (ShardedClientRepository.update), sem transação no banco principal.
+	 * Um lock não obtido a tempo responde 409; com shards por cpf, o cpf não pode mudar (400).
+	 */
+	private ClientDTO writeSharded(Long id, Long version, Set<Long> ifMatchVersions, Consumer<Client> changes) {
+		ClientDTO result;
+		try {
+			result = shards.update(id, current -> {
+				if (ifMatchVersions != null && !ifMatchVersions.contains(current.getVersion())) {
+					throw new PreconditionFailedException("Version mismatch for id " + id);
+				}
+				if (version != null && !version.equals(current.getVersion())) {
+					throw new ConflictException("Client " + id + " was modified (version " + current.getVersion() + ")");
+				}
+				Client entity = current.toEntity();
+				changes.accept(entity);
+				return new ClientDTO(entity);
+			}).orElseThrow(() -> new ResourceNotFoundException("Id not found " + id));
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException(e.getMessage());
+		} catch (ConcurrencyFailureException e) {
+			throw new ConflictException("Client " + id + " is locked by another update");
+		} catch (DataIntegrityViolationException e) {
+			throw new DatabaseException("Integrity violation");
+		}
+		publisher.publishEvent(ClientChangedEvent.updated(result));
+		return result;
+	}
+	
+	private void flushWriteBehind() {
+		if (writeBehind != null) {
+			writeBehind.flush();
+		}
+	}
+	
+	private static <T extends Comparable<? super T>> void checkRange(String field, T min, T max) {
+		if (min != null && max != null && min.compareTo(max) > 0) {
+			throw new BadRequestException("Invalid " + field + " range");
+		}
+	}
+	
+	private static void checkSort(PageRequest pageRequest) {
+		pageRequest.getSort().forEach(order -> {
+			if (!ClientSeek.SORTABLE_FIELDS.containsKey(order.getProperty())) {
+				throw new BadRequestException("Invalid orderBy " + order.getProperty());
+			}
+		});
+	}
+	
+	private void patchData(Client entity, ClientDTO values, Set<String> fields) {
+		if (fields.contains("name")) {
+			entity.setName(values.getName());
+		}
+		if (fields.contains("cpf")) {
+			entity.setCpf(values.getCpf());
+		}
+		if (fields.contains("income")) {
+			entity.setIncome(values.getIncome());
+		}
+		if (fields.contains("birthDate")) {
+			entity.setBirthDate(values.getBirthDate());
+		}
+		if (fields.contains("children")) {
+			entity.setChildren(values.getChildren());
+		}
+	}
+
+	private List<BatchResultDTO> insertChunk(List<ClientDTO> chunk, int firstIndex) {
+		if (shards != null) {
+			return insertChunkSharded(chunk, firstIndex);
+		}
+		try {
+			return transactionTemplate.execute(status -> {
+				List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+				for (int i = 0; i < chunk.size(); i++) {
+					ClientDTO dto = chunk.get(i);
+					if (dto == null) {
+						results.add(BatchResultDTO.failed(firstIndex + i, "Invalid row"));
+						continue;
+					}
+					Client entity = dto.toEntity();
+					entity.setId(null);
+					em.persist(entity);
+					results.add(BatchResultDTO.created(firstIndex + i, entity.getId()));
+					publisher.publishEvent(ClientChangedEvent.inserted(new ClientDTO(entity)));
+				}
+				em.flush();
+				em.clear();
+				return results;
+			});
+		} catch (RuntimeException e) {
+			List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+			for (int i = 0; i < chunk.size(); i++) {
+				results.add(insertRow(chunk.get(i), firstIndex + i));
+			}
+			return results;
+		}
+	}
+	
+	/*
+	 * Com shards, o bloco vira um lote por shard (ver ShardedClientRepository.insertAll); as linhas
+	 * de um lote que falhou são refeitas uma a uma, como no banco único.
+	 */
+	private List<BatchResultDTO> insertChunkSharded(List<ClientDTO> chunk, int firstIndex) {
+		BatchResultDTO[] results = new BatchResultDTO[chunk.size()];
+		List<Integer> indexes = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			if (chunk.get(i) == null) {
+				results[i] = BatchResultDTO.failed(firstIndex + i, "Invalid row");
+			} else {
+				indexes.add(i);
+			}
+		}
+		List<ClientDTO> inserted = shards.insertAll(indexes.stream().map(chunk::get).collect(Collectors.toList()));
+		for (int j = 0; j < indexes.size(); j++) {
+			int i = indexes.get(j);
+			ClientDTO result = inserted.get(j);
+			if (result == null) {
+				results[i] = insertRow(chunk.get(i), firstIndex + i);
+			} else {
+				results[i] = BatchResultDTO.created(firstIndex + i, result.getId());
+				publisher.publishEvent(ClientChangedEvent.inserted(result));
+			}
+		}
+		return Arrays.asList(results);
+	}
+	
+	private BatchResultDTO insertRow(ClientDTO dto, int index) {
+		if (dto == null) {
+			return BatchResultDTO.failed(index, "Invalid row");
+		}
+		if (shards != null) {
+			try {
+				ClientDTO result = shards.insert(dto);
+				publisher.publishEvent(ClientChangedEvent.inserted(result));
+				return BatchResultDTO.created(index, result.getId());
+			} catch (RuntimeException e) {
+				return BatchResultDTO.failed(index, isIntegrityViolation(e) ? "Integrity violation" : "Database error");
+			}
+		}
+		try {
+			return transactionTemplate.execute(status -> {
+				Client entity = dto.toEntity();
+				entity.setId(null);
+				em.persist(entity);
+				em.flush();
+				publisher.publishEvent(ClientChangedEvent.inserted(new ClientDTO(entity)));
+				return BatchResultDTO.created(index, entity.getId());
+			});
+		} catch (RuntimeException e) {
+			return BatchResultDTO.failed(index, isIntegrityViolation(e) ? "Integrity violation" : "Database error");
+		}
+	}
+	
+	private static boolean isIntegrityViolation(Throwable e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof DataIntegrityViolationException || t instanceof ConstraintViolationException) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/*
+	 * Monta a página a partir dos ids encontrados no índice. Se a ordenação é por id, cpf ou name,
+	 * seleciona em memória só os offset + size primeiros e busca os ids da página; senão deixa o banco ordenar com
+	 * "id in (...)", desde que a lista não passe de client.search-index.max-in-list.
+	 */
+	private Page<ClientDTO> pageOfIds(long[] ids, PageRequest pageRequest, Supplier<Page<ClientDTO>> database) {
+		List<Sort.Order> orders = pageRequest.getSort().toList();
+		if (orders.size() <= 1) {
+			Sort.Order order = orders.isEmpty() ? Sort.Order.asc("id") : orders.get(0);
+			if (ClientSearchIndex.canSortBy(order.getProperty())) {
+				int limit = (int) Math.min(pageRequest.getOffset() + pageRequest.getPageSize(), ids.length);
+				long[] sorted = searchIndex.sort(ids, order.getProperty(), order.isAscending(), limit);
+				int from = (int) Math.min(pageRequest.getOffset(), sorted.length);
+				int to = sorted.length;
+				List<Long> pageIds = Arrays.stream(sorted, from, to).boxed().collect(Collectors.toList());
+				Map<Long, ClientDTO> found = repository.findByIdIn(pageIds).stream()
+						.collect(Collectors.toMap(ClientDTO::getId, Function.identity()));
+				List<ClientDTO> content = pageIds.stream().map(found::get).filter(Objects::nonNull)
+						.collect(Collectors.toList());
+				return new PageImpl<>(content, pageRequest, ids.length);
+			}
+		}
+		if (ids.length <= searchMaxInList) {
+			List<Long> idList = Arrays.stream(ids).boxed().collect(Collectors.toList());
+			return repository.findByIdIn(idList, pageRequest);
+		}
+		return database.get();
+	}
+	
+	private long[] incomeHistogram(double floor, IncomeStatsDTO stats, int buckets) {
+		if (shards != null) {
+			return shards.incomeHistogram(floor, stats.getMin(), bucketWidth(stats, buckets), buckets);
+		}
+		if (useSnapshot()) {
+			return snapshot.incomeHistogram(floor, stats.getMin(), bucketWidth(stats, buckets), buckets);
+		}
+		long[] counts = new long[buckets];
+		for (Object[] row : repository.incomeHistogram(floor, stats.getMin(), bucketWidth(stats, buckets))) {
+			// o max cai na faixa "buckets", que é somada à última
+			int i = (int) Math.min(((Number) row[0]).longValue(), buckets - 1);
+			counts[i] += ((Number) row[1]).longValue();
+		}
+		return counts;
+	}
+	
+	private boolean useSnapshot() {
+		return shards == null && snapshot.isReady();
+	}
+	
+	private static double bucketWidth(IncomeStatsDTO stats, int buckets) {
+		double range = stats.getMax() - stats.getMin();
+		return range > 0 ? range / buckets : 1.0;
+	}
+	
+	private static double percentile(long[] counts, double width, IncomeStatsDTO stats, double quantile) {
+		double rank = quantile * stats.getCount();
+		long cumulative = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0 && cumulative + counts[i] >= rank) {
+				double fraction = (rank - cumulative) / counts[i];
+				double value = stats.getMin() + (i + fraction) * width;
+				return Math.max(stats.getMin(), Math.min(stats.getMax(), value));
+			}
+			cumulative += counts[i];
+		}
+		return stats.getMax();
+	}
+	
+	private CursorPageDTO<ClientDTO> toCursorPage(List<ClientDTO> rows, ClientSeek seek) {
+		boolean hasNext = rows.size() > seek.getSize();
+		List<ClientDTO> content = hasNext ? new ArrayList<>(rows.subList(0, seek.getSize())) : rows;
+		String nextCursor = hasNext ? ClientCursor.encode(content.get(content.size() - 1), seek.getOrderBy()) : null;
+		return new CursorPageDTO<>(content, seek.getSize(), nextCursor);
+	}
+
 	
 
 }
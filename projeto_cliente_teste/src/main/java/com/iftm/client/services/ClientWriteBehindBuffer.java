@@ -0,0 +1,312 @@
+package com.iftm.client.services;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.config.SqlStatementsConfig;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.exceptions.ConflictException;
+import com.iftm.client.services.exceptions.DatabaseException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+
+/*
+ * Write-behind das atualizações de cliente (client.write-behind.enabled=true), usado pelo
+ * ClientService.update sem versão nem If-Match. As atualizações ficam num buffer dividido em faixas
+ * por id; várias atualizações do mesmo id antes da gravação viram uma só (vale a última).
+ * A cada client.write-behind.flush-interval, ou quando o buffer chega a client.write-behind.max-pending
+ * ids, tudo vai ao banco num único UPDATE em lote JDBC, em uma transação própria (REQUIRES_NEW).
+ * Quem chama flush não deve estar em transação: seriam duas conexões presas pela mesma thread, e com
+ * o pool cheio de threads assim o flush nunca consegue a sua.
+ *
+ * Cada UPDATE leva a versão lida do banco quando o id entrou no buffer: se outra escrita passou na frente,
+ * a linha não é alterada e a atualização falha com ConflictException. Com client.write-behind.ack=flush
+ * quem chamou espera a gravação (e recebe o erro); com none, retorna na hora e os erros só vão para o log.
+ * Até a gravação, pending(id) devolve o valor pendente, que é o que findById mostra.
+ * Os comandos do flush contam nos comandos da requisição de cada atualização (SqlStatementsConfig):
+ * o lote conta um para cada uma, e a regravação linha a linha, mais um.
+ */
+@Component
+@ConditionalOnProperty(name = "client.write-behind.enabled", havingValue = "true")
+public class ClientWriteBehindBuffer {
+
+	public enum Ack {
+		FLUSH, NONE
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(ClientWriteBehindBuffer.class);
+	private static final int STRIPES = 64;
+	private static final String UPDATE = "UPDATE tb_client SET name = ?, cpf = ?, income = ?, birth_date = ?, children = ?,"
+			+ " version = version + 1 WHERE id = ? AND version = ?";
+	private static final String SELECT_VERSION = "SELECT version FROM tb_client WHERE id = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher publisher;
+	private final ClientCacheInvalidator invalidator;
+	private final Ack ack;
+	private final int maxPending;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final Map<Long, Pending> inFlight = new ConcurrentHashMap<>();
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private final Lock flushLock = new ReentrantLock();
+	private final ScheduledExecutorService scheduler;
+
+	public ClientWriteBehindBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			ApplicationEventPublisher publisher, ClientCacheInvalidator invalidator,
+			@Value("${client.write-behind.flush-interval:PT0.05S}") Duration flushInterval,
+			@Value("${client.write-behind.max-pending:1000}") int maxPending,
+			@Value("${client.write-behind.ack:flush}") String ack) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.publisher = publisher;
+		this.invalidator = invalidator;
+		this.maxPending = maxPending;
+		this.ack = Ack.valueOf(ack.trim().toUpperCase());
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "client-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = flushInterval.toNanos();
+		scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.NANOSECONDS);
+	}
+
+	/*
+	 * Coloca values no buffer como a nova versão do cliente id. A versão atual vem do valor pendente
+	 * ou, se o id não está no buffer, do banco: o ClientCache pode estar atrás de uma escrita de
+	 * outra instância, e uma versão velha faria a gravação falhar por conflito.
+	 */
+	public ClientDTO submit(Long id, ClientDTO values) {
+		ClientDTO current = pending(id);
+		if (current == null) {
+			List<Long> version = jdbcTemplate.queryForList(SELECT_VERSION, Long.class, id);
+			if (version.isEmpty()) {
+				throw new ResourceNotFoundException("Entity not found");
+			}
+			current = new ClientDTO(id, null, null, null, null, null, version.get(0));
+		}
+		return submit(current, values);
+	}
+
+	/*
+	 * Coloca values no buffer como a nova versão de current (o valor atual, já com os pendentes)
+	 * e devolve o cliente como ficará depois da gravação.
+	 */
+	public ClientDTO submit(ClientDTO current, ClientDTO values) {
+		Long id = current.getId();
+		Stripe stripe = stripes[stripe(id)];
+		Pending pending;
+		stripe.lock.lock();
+		try {
+			pending = stripe.pending.get(id);
+			if (pending == null) {
+				pending = new Pending(current.getVersion(), SqlStatementsConfig.counter());
+				stripe.pending.put(id, pending);
+				if (pendingCount.incrementAndGet() >= maxPending && flushRequested.compareAndSet(false, true)) {
+					scheduler.execute(this::flushQuietly);
+				}
+			}
+			pending.value = new ClientDTO(id, values.getName(), values.getCpf(), values.getIncome(),
+					values.getBirthDate(), values.getChildren(), pending.expectedVersion + 1);
+		} finally {
+			stripe.lock.unlock();
+		}
+		ClientDTO result = pending.value;
+		if (ack == Ack.FLUSH) {
+			try {
+				pending.done.join();
+			} catch (RuntimeException e) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+		}
+		return result;
+	}
+
+	public ClientDTO pending(Long id) {
+		Stripe stripe = stripes[stripe(id)];
+		stripe.lock.lock();
+		try {
+			Pending pending = stripe.pending.get(id);
+			if (pending != null) {
+				return pending.value;
+			}
+		} finally {
+			stripe.lock.unlock();
+		}
+		Pending pending = inFlight.get(id);
+		return pending != null ? pending.value : null;
+	}
+
+	/*
+	 * Ids ainda não gravados: os do buffer e os do flush em andamento.
+	 */
+	public int size() {
+		return pendingCount.get() + inFlight.size();
+	}
+
+	/*
+	 * Grava tudo o que está no buffer. Também é chamado pelo ClientService antes das escritas que
+	 * não passam pelo buffer, para que elas não sejam sobrescritas por um valor pendente mais antigo.
+	 * Os locks são ReentrantLock e não synchronized: o flush espera o banco segurando o lock, e uma
+	 * virtual thread bloqueada dentro de synchronized prende a thread carregadora (Java 21).
+	 */
+	public void flush() {
+		flushLock.lock();
+		try {
+			flushLocked();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void flushLocked() {
+		flushRequested.set(false);
+		Map<Long, Pending> drained = new HashMap<>();
+		for (Stripe stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				if (!stripe.pending.isEmpty()) {
+					inFlight.putAll(stripe.pending);
+					drained.putAll(stripe.pending);
+					pendingCount.addAndGet(-stripe.pending.size());
+					stripe.pending.clear();
+				}
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+		if (drained.isEmpty()) {
+			return;
+		}
+		List<Pending> batch = new ArrayList<>(drained.values());
+		Map<Pending, RuntimeException> errors = new HashMap<>();
+		batch.forEach(pending -> pending.statements.incrementAndGet());
+		try {
+			int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE,
+					batch.stream().map(Pending::args).collect(Collectors.toList())));
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					errors.put(batch.get(i), conflict(batch.get(i)));
+				}
+			}
+		} catch (DataAccessException e) {
+			// uma linha ruim derruba o lote todo: grava linha a linha para saber qual
+			for (Pending pending : batch) {
+				RuntimeException error = flushOne(pending);
+				if (error != null) {
+					errors.put(pending, error);
+				}
+			}
+		}
+		invalidator.evict(drained.keySet());
+		for (Pending pending : batch) {
+			RuntimeException error = errors.get(pending);
+			if (error == null) {
+				publisher.publishEvent(ClientChangedEvent.updated(pending.value));
+				pending.done.complete(null);
+			} else {
+				if (ack == Ack.NONE) {
+					log.warn("Write-behind update of client {} failed: {}", pending.value.getId(), error.getMessage());
+				}
+				pending.done.completeExceptionally(error);
+			}
+			inFlight.remove(pending.value.getId(), pending);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		scheduler.shutdown();
+		flush();
+	}
+
+	private RuntimeException flushOne(Pending pending) {
+		pending.statements.incrementAndGet();
+		try {
+			int count = transactionTemplate.execute(status -> jdbcTemplate.update(UPDATE, pending.args()));
+			return count == 0 ? conflict(pending) : null;
+		} catch (DataIntegrityViolationException e) {
+			return new DatabaseException("Integrity violation");
+		} catch (DataAccessException e) {
+			return e;
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			log.error("Write-behind flush failed", e);
+		}
+	}
+
+	private static ConflictException conflict(Pending pending) {
+		return new ConflictException("Client " + pending.value.getId() + " was modified concurrently");
+	}
+
+	private static int stripe(Long id) {
+		return (Long.hashCode(id) & 0x7fffffff) % STRIPES;
+	}
+
+	private static class Stripe {
+		private final Lock lock = new ReentrantLock();
+		private final Map<Long, Pending> pending = new HashMap<>();
+	}
+
+	/*
+	 * value é trocado sob o lock da faixa enquanto o id está no buffer; depois de drenado só é lido.
+	 */
+	private static class Pending {
+
+		private final long expectedVersion;
+		private final AtomicLong statements;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		private volatile ClientDTO value;
+
+		Pending(long expectedVersion, AtomicLong statements) {
+			this.expectedVersion = expectedVersion;
+			this.statements = statements;
+		}
+
+		Object[] args() {
+			ClientDTO v = value;
+			Timestamp birthDate = v.getBirthDate() == null ? null : Timestamp.from(v.getBirthDate());
+			return new Object[] { v.getName(), v.getCpf(), v.getIncome(), birthDate, v.getChildren(), v.getId(), expectedVersion };
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.iftm.client.services;
+
+import java.util.function.IntBinaryOperator;
+
+/*
+ * Seleção dos k primeiros de n itens (índices 0..n-1) numa ordem dada, sem ordenar todos:
+ * um heap de k índices int com o pior no topo, O(n log k) e sem boxing.
+ * Usado para montar só a página pedida a partir das linhas de um índice em memória.
+ */
+public final class TopK {
+
+	private TopK() {
+	}
+
+	/*
+	 * Retorna os índices dos k primeiros itens, já em ordem. compare(a, b) < 0 quando a vem antes de b.
+	 */
+	public static int[] select(int n, int k, IntBinaryOperator compare) {
+		int size = Math.max(0, Math.min(n, k));
+		int[] heap = new int[size];
+		if (size == 0) {
+			return heap;
+		}
+		for (int i = 0; i < size; i++) {
+			heap[i] = i;
+			siftUp(heap, i, compare);
+		}
+		for (int i = size; i < n; i++) {
+			if (compare.applyAsInt(i, heap[0]) < 0) {
+				heap[0] = i;
+				siftDown(heap, size, compare);
+			}
+		}
+		int[] sorted = new int[size];
+		for (int last = size - 1; last >= 0; last--) {
+			sorted[last] = heap[0];
+			heap[0] = heap[last];
+			siftDown(heap, last, compare);
+		}
+		return sorted;
+	}
+
+	private static void siftUp(int[] heap, int i, IntBinaryOperator compare) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (compare.applyAsInt(heap[i], heap[parent]) <= 0) {
+				return;
+			}
+			swap(heap, i, parent);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(int[] heap, int size, IntBinaryOperator compare) {
+		int i = 0;
+		while (true) {
+			int largest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if (left < size && compare.applyAsInt(heap[left], heap[largest]) > 0) {
+				largest = left;
+			}
+			if (right < size && compare.applyAsInt(heap[right], heap[largest]) > 0) {
+				largest = right;
+			}
+			if (largest == i) {
+				return;
+			}
+			swap(heap, i, largest);
+			i = largest;
+		}
+	}
+
+	private static void swap(int[] heap, int i, int j) {
+		int tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+}
@@ -0,0 +1,448 @@
+package com.iftm.client.services.analytics;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientChangedEvent;
+import com.iftm.client.services.TopK;
+
+/*
+ * Cópia colunar de tb_client em memória (client.analytics.enabled=true) para filtros e agregações
+ * sem ir ao banco: income em double[], children em int[], birthDate em long[] (epoch ms) e name/cpf
+ * codificados por dicionário em int[]. Cada filtro percorre uma coluna e gera um BitSet de linhas;
+ * os filtros são combinados com AND sobre o BitSet das linhas vivas, e o total é a cardinalidade.
+ *
+ * É montada quando a aplicação sobe e atualizada pelos ClientChangedEvent depois do commit.
+ * Exclusões só desligam a linha; quando metade das linhas estiver morta as colunas são compactadas.
+ * Eventos fora de ordem (transações concorrentes) não voltam uma linha para uma versão anterior, e
+ * um evento atrasado não traz de volta um cliente removido há pouco.
+ * Escritas de outras instâncias não chegam aqui. Enquanto não estiver pronta, isReady() retorna false e as consultas vão ao banco.
+ */
+@Component
+public class ClientColumnarSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientColumnarSnapshot.class);
+	private static final int COMPACT_MIN_ROWS = 1024;
+	// ids removidos lembrados para descartar eventos atrasados (os ids não são reutilizados)
+	private static final int RECENT_DELETES = 10_000;
+
+	private final boolean enabled;
+	private final ClientRepository repository;
+	private final TransactionTemplate readOnlyTx;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile boolean ready;
+
+	private int size;
+	private long[] ids = new long[16];
+	private long[] versions = new long[16];
+	private double[] income = new double[16];
+	private int[] children = new int[16];
+	private long[] birthDate = new long[16];
+	private int[] name = new int[16];
+	private int[] cpf = new int[16];
+	private final BitSet live = new BitSet();
+	private final BitSet incomeNull = new BitSet();
+	private final BitSet childrenNull = new BitSet();
+	private final BitSet birthDateNull = new BitSet();
+	private Dictionary names = new Dictionary();
+	private Dictionary cpfs = new Dictionary();
+	private final LongIntMap rows = new LongIntMap();
+	private final Map<Long, Boolean> deleted = new LinkedHashMap<Long, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+			return size() > RECENT_DELETES;
+		}
+	};
+
+	public ClientColumnarSnapshot(@Value("${client.analytics.enabled:false}") boolean enabled,
+			ClientRepository repository, PlatformTransactionManager transactionManager) {
+		this.enabled = enabled;
+		this.repository = repository;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		if (!enabled) {
+			return;
+		}
+		long start = System.nanoTime();
+		lock.writeLock().lock();
+		try {
+			readOnlyTx.executeWithoutResult(status -> {
+				try (Stream<ClientDTO> stream = repository.streamAll()) {
+					stream.forEach(this::put);
+				}
+			});
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Client columnar snapshot built with {} clients in {} ms", rows.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onClientChanged(ClientChangedEvent event) {
+		if (!enabled) {
+			return;
+		}
+		if (event.getType() == ClientChangedEvent.Type.INCOME_UPDATED) {
+			write(() -> {
+				int i = rows.get(event.getId());
+				if (i != LongIntMap.MISSING) {
+					setIncome(i, event.getIncome());
+					versions[i]++;
+				}
+			});
+		} else if (event.getType() == ClientChangedEvent.Type.DELETED) {
+			write(() -> remove(event.getId()));
+		} else if (event.getClient() != null) {
+			write(() -> put(event.getClient()));
+		}
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public Page<ClientDTO> findByIncomeGreaterThan(double value, Pageable pageable) {
+		return read(() -> page(incomeGreaterThan(value), pageable));
+	}
+
+	public Page<ClientDTO> search(ClientFilterDTO filter, Pageable pageable) {
+		return read(() -> page(select(filter), pageable));
+	}
+
+	/*
+	 * Mesmo resultado de ClientRepository.incomeSummary: clientes com income maior que floor.
+	 */
+	public IncomeStatsDTO incomeSummary(double floor) {
+		return read(() -> {
+			BitSet selected = incomeGreaterThan(floor);
+			long count = 0;
+			double sum = 0;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+				double v = income[i];
+				count++;
+				sum += v;
+				min = Math.min(min, v);
+				max = Math.max(max, v);
+			}
+			return count == 0 ? new IncomeStatsDTO(0L, null, null, null, null)
+					: new IncomeStatsDTO(count, sum, sum / count, min, max);
+		});
+	}
+
+	/*
+	 * Mesmo resultado de ClientRepository.incomeHistogram, já como contagem por faixa:
+	 * faixa = floor((income - min) / width), e as faixas a partir de buckets somam na última.
+	 */
+	public long[] incomeHistogram(double floor, double min, double width, int buckets) {
+		return read(() -> {
+			long[] counts = new long[buckets];
+			BitSet selected = incomeGreaterThan(floor);
+			for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+				long bucket = (long) Math.floor((income[i] - min) / width);
+				counts[(int) Math.max(0, Math.min(bucket, buckets - 1))]++;
+			}
+			return counts;
+		});
+	}
+
+	private BitSet select(ClientFilterDTO filter) {
+		BitSet selected = (BitSet) live.clone();
+		if (filter.getMinIncome() != null || filter.getMaxIncome() != null) {
+			double from = filter.getMinIncome() == null ? Double.NEGATIVE_INFINITY : filter.getMinIncome();
+			double to = filter.getMaxIncome() == null ? Double.POSITIVE_INFINITY : filter.getMaxIncome();
+			BitSet matches = new BitSet(size);
+			for (int i = 0; i < size; i++) {
+				if (income[i] >= from && income[i] <= to) {
+					matches.set(i);
+				}
+			}
+			matches.andNot(incomeNull);
+			selected.and(matches);
+		}
+		if (filter.getMinChildren() != null || filter.getMaxChildren() != null) {
+			int from = filter.getMinChildren() == null ? Integer.MIN_VALUE : filter.getMinChildren();
+			int to = filter.getMaxChildren() == null ? Integer.MAX_VALUE : filter.getMaxChildren();
+			BitSet matches = new BitSet(size);
+			for (int i = 0; i < size; i++) {
+				if (children[i] >= from && children[i] <= to) {
+					matches.set(i);
+				}
+			}
+			matches.andNot(childrenNull);
+			selected.and(matches);
+		}
+		if (filter.getBornFrom() != null || filter.getBornTo() != null) {
+			long from = filter.getBornFrom() == null ? Long.MIN_VALUE : filter.getBornFrom().toEpochMilli();
+			long to = filter.getBornTo() == null ? Long.MAX_VALUE : filter.getBornTo().toEpochMilli();
+			BitSet matches = new BitSet(size);
+			for (int i = 0; i < size; i++) {
+				if (birthDate[i] >= from && birthDate[i] <= to) {
+					matches.set(i);
+				}
+			}
+			matches.andNot(birthDateNull);
+			selected.and(matches);
+		}
+		if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+			selected.and(codesIn(name, names.matching(v -> v.startsWith(filter.getNamePrefix()))));
+		}
+		if (filter.getCpfPrefix() != null && !filter.getCpfPrefix().isEmpty()) {
+			selected.and(codesIn(cpf, cpfs.matching(v -> v.startsWith(filter.getCpfPrefix()))));
+		}
+		return selected;
+	}
+
+	private BitSet incomeGreaterThan(double value) {
+		BitSet matches = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			if (income[i] > value) {
+				matches.set(i);
+			}
+		}
+		matches.andNot(incomeNull);
+		matches.and(live);
+		return matches;
+	}
+
+	private BitSet codesIn(int[] column, BitSet codes) {
+		BitSet matches = new BitSet(size);
+		if (codes.isEmpty()) {
+			return matches;
+		}
+		for (int i = 0; i < size; i++) {
+			int code = column[i];
+			if (code != Dictionary.NULL && codes.get(code)) {
+				matches.set(i);
+			}
+		}
+		return matches;
+	}
+
+	/*
+	 * Ordena pelo Sort do pageable e depois pelo id, com nulos primeiro em ordem crescente (como
+	 * o H2), e monta os ClientDTO da página pedida. Só as offset + size primeiras linhas selecionadas
+	 * são ordenadas (TopK sobre os índices das linhas, sem boxing).
+	 */
+	private Page<ClientDTO> page(BitSet selected, Pageable pageable) {
+		int[] candidates = selected.stream().toArray();
+		int limit = pageable.isUnpaged() ? candidates.length
+				: (int) Math.min(pageable.getOffset() + pageable.getPageSize(), candidates.length);
+		IntBinaryOperator compare = comparator(pageable.getSort());
+		int[] first = TopK.select(candidates.length, limit, (a, b) -> compare.applyAsInt(candidates[a], candidates[b]));
+		int from = pageable.isUnpaged() ? 0 : (int) Math.min(pageable.getOffset(), first.length);
+		List<ClientDTO> content = IntStream.range(from, first.length).mapToObj(k -> toDTO(candidates[first[k]]))
+				.collect(Collectors.toList());
+		return new PageImpl<>(content, pageable, candidates.length);
+	}
+
+	private IntBinaryOperator comparator(Sort sort) {
+		IntBinaryOperator[] columns = sort.stream().map(order -> {
+			IntBinaryOperator column = column(order.getProperty());
+			return order.isAscending() ? column : (IntBinaryOperator) (a, b) -> column.applyAsInt(b, a);
+		}).toArray(IntBinaryOperator[]::new);
+		return (a, b) -> {
+			for (IntBinaryOperator column : columns) {
+				int result = column.applyAsInt(a, b);
+				if (result != 0) {
+					return result;
+				}
+			}
+			return Long.compare(ids[a], ids[b]);
+		};
+	}
+
+	private IntBinaryOperator column(String property) {
+		switch (property) {
+		case "id":
+			return (a, b) -> Long.compare(ids[a], ids[b]);
+		case "income":
+			return nullsFirst(incomeNull, (a, b) -> Double.compare(income[a], income[b]));
+		case "children":
+			return nullsFirst(childrenNull, (a, b) -> Integer.compare(children[a], children[b]));
+		case "birthDate":
+			return nullsFirst(birthDateNull, (a, b) -> Long.compare(birthDate[a], birthDate[b]));
+		case "name":
+			return text(name, names);
+		case "cpf":
+			return text(cpf, cpfs);
+		default:
+			throw new IllegalArgumentException("Invalid orderBy " + property);
+		}
+	}
+
+	private static IntBinaryOperator nullsFirst(BitSet nulls, IntBinaryOperator values) {
+		return (a, b) -> {
+			boolean na = nulls.get(a);
+			boolean nb = nulls.get(b);
+			if (na || nb) {
+				return na == nb ? 0 : na ? -1 : 1;
+			}
+			return values.applyAsInt(a, b);
+		};
+	}
+
+	private static IntBinaryOperator text(int[] column, Dictionary dictionary) {
+		return (a, b) -> {
+			String va = dictionary.decode(column[a]);
+			String vb = dictionary.decode(column[b]);
+			if (va == null || vb == null) {
+				return va == vb ? 0 : va == null ? -1 : 1;
+			}
+			return va.compareTo(vb);
+		};
+	}
+
+	private ClientDTO toDTO(int i) {
+		return new ClientDTO(ids[i], names.decode(name[i]), cpfs.decode(cpf[i]),
+				incomeNull.get(i) ? null : income[i],
+				birthDateNull.get(i) ? null : Instant.ofEpochMilli(birthDate[i]),
+				childrenNull.get(i) ? null : children[i],
+				versions[i]);
+	}
+
+	private void put(ClientDTO client) {
+		int i = rows.get(client.getId());
+		if (i != LongIntMap.MISSING) {
+			if (client.getVersion() != null && client.getVersion() <= versions[i]) {
+				return;
+			}
+		} else {
+			if (deleted.containsKey(client.getId())) {
+				return;
+			}
+			if (size == ids.length) {
+				grow(size * 2);
+			}
+			i = size++;
+			rows.put(client.getId(), i);
+			live.set(i);
+		}
+		ids[i] = client.getId();
+		versions[i] = client.getVersion() == null ? 0 : client.getVersion();
+		setIncome(i, client.getIncome());
+		childrenNull.set(i, client.getChildren() == null);
+		children[i] = client.getChildren() == null ? 0 : client.getChildren();
+		birthDateNull.set(i, client.getBirthDate() == null);
+		birthDate[i] = client.getBirthDate() == null ? 0 : client.getBirthDate().toEpochMilli();
+		name[i] = names.encode(client.getName());
+		cpf[i] = cpfs.encode(client.getCpf());
+	}
+
+	private void setIncome(int i, Double value) {
+		incomeNull.set(i, value == null);
+		income[i] = value == null ? 0 : value;
+	}
+
+	private void remove(Long id) {
+		deleted.put(id, Boolean.TRUE);
+		int i = rows.remove(id);
+		if (i == LongIntMap.MISSING) {
+			return;
+		}
+		live.clear(i);
+		if (size >= COMPACT_MIN_ROWS && rows.size() < size / 2) {
+			compact();
+		}
+	}
+
+	/*
+	 * Reescreve as colunas só com as linhas vivas, na mesma ordem, e recria os dicionários.
+	 */
+	private void compact() {
+		int[] alive = live.stream().toArray();
+		Dictionary newNames = new Dictionary();
+		Dictionary newCpfs = new Dictionary();
+		BitSet[] nulls = { incomeNull, childrenNull, birthDateNull };
+		BitSet[] copies = { new BitSet(), new BitSet(), new BitSet() };
+		for (int k = 0; k < alive.length; k++) {
+			int i = alive[k];
+			ids[k] = ids[i];
+			versions[k] = versions[i];
+			income[k] = income[i];
+			children[k] = children[i];
+			birthDate[k] = birthDate[i];
+			name[k] = newNames.encode(names.decode(name[i]));
+			cpf[k] = newCpfs.encode(cpfs.decode(cpf[i]));
+			for (int c = 0; c < nulls.length; c++) {
+				copies[c].set(k, nulls[c].get(i));
+			}
+			rows.put(ids[k], k);
+		}
+		for (int c = 0; c < nulls.length; c++) {
+			nulls[c].clear();
+			nulls[c].or(copies[c]);
+		}
+		names = newNames;
+		cpfs = newCpfs;
+		size = alive.length;
+		live.clear();
+		live.set(0, size);
+		grow(Math.max(16, size * 2));
+	}
+
+	private void grow(int capacity) {
+		ids = Arrays.copyOf(ids, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		income = Arrays.copyOf(income, capacity);
+		children = Arrays.copyOf(children, capacity);
+		birthDate = Arrays.copyOf(birthDate, capacity);
+		name = Arrays.copyOf(name, capacity);
+		cpf = Arrays.copyOf(cpf, capacity);
+	}
+
+	private void write(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private <T> T read(Supplier<T> query) {
+		lock.readLock().lock();
+		try {
+			return query.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
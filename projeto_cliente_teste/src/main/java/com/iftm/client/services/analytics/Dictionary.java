@@ -0,0 +1,49 @@
+package com.iftm.client.services.analytics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/*
+ * Codificação por dicionário de uma coluna de texto: cada valor distinto vira um código int.
+ * Um filtro é avaliado uma vez por valor distinto (matching) e depois aplicado aos códigos.
+ * Os valores nunca saem do dicionário; a reconstrução do snapshot o recria do zero.
+ */
+final class Dictionary {
+
+	static final int NULL = -1;
+
+	private final List<String> values = new ArrayList<>();
+	private final Map<String, Integer> codes = new HashMap<>();
+
+	int encode(String value) {
+		if (value == null) {
+			return NULL;
+		}
+		return codes.computeIfAbsent(value, v -> {
+			values.add(v);
+			return values.size() - 1;
+		});
+	}
+
+	String decode(int code) {
+		return code == NULL ? null : values.get(code);
+	}
+
+	BitSet matching(Predicate<String> predicate) {
+		BitSet matches = new BitSet(values.size());
+		for (int code = 0; code < values.size(); code++) {
+			if (predicate.test(values.get(code))) {
+				matches.set(code);
+			}
+		}
+		return matches;
+	}
+
+	int size() {
+		return values.size();
+	}
+}
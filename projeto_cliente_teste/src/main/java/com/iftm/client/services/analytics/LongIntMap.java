@@ -0,0 +1,100 @@
+package com.iftm.client.services.analytics;
+
+/*
+ * Mapa long -> int (id do cliente -> linha) em arrays primitivos, com endereçamento aberto e
+ * sondagem linear: sem um Long e um Integer por cliente. A remoção puxa de volta as chaves
+ * seguintes do mesmo grupo, então não há marcadores de removido. Também usado pelo ClientSearchIndex.
+ */
+public final class LongIntMap {
+
+	public static final int MISSING = -1;
+
+	private long[] keys = new long[16];
+	private int[] values = new int[16];
+	private boolean[] used = new boolean[16];
+	private int size;
+
+	public int get(long key) {
+		for (int i = slot(key, keys.length); used[i]; i = next(i)) {
+			if (keys[i] == key) {
+				return values[i];
+			}
+		}
+		return MISSING;
+	}
+
+	public void put(long key, int value) {
+		int i = slot(key, keys.length);
+		for (; used[i]; i = next(i)) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+		}
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		if (++size * 2 > keys.length) {
+			resize(keys.length * 2);
+		}
+	}
+
+	public int remove(long key) {
+		int i = slot(key, keys.length);
+		while (used[i] && keys[i] != key) {
+			i = next(i);
+		}
+		if (!used[i]) {
+			return MISSING;
+		}
+		int value = values[i];
+		used[i] = false;
+		size--;
+		// puxa para o buraco as chaves seguintes do grupo cuja posição de origem fica antes dele
+		for (int j = next(i); used[j]; j = next(j)) {
+			int home = slot(keys[j], keys.length);
+			boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!stays) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				used[i] = true;
+				used[j] = false;
+				i = j;
+			}
+		}
+		return value;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int j = slot(oldKeys[i], capacity);
+				while (used[j]) {
+					j = (j + 1) & (capacity - 1);
+				}
+				used[j] = true;
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	private int next(int i) {
+		return (i + 1) & (keys.length - 1);
+	}
+
+	private static int slot(long key, int capacity) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (capacity - 1);
+	}
+}
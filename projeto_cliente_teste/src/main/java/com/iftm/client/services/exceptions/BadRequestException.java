@@ -0,0 +1,10 @@
+package com.iftm.client.services.exceptions;
+
+public class BadRequestException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	public BadRequestException(String msg) {
+		super(msg);
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.iftm.client.services.exceptions;
+
+public class TooManyRequestsException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	public TooManyRequestsException(String msg) {
+		super(msg);
+	}
+
+}
@@ -0,0 +1,237 @@
+package com.iftm.client.services.search;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientChangedEvent;
+import com.iftm.client.services.TopK;
+import com.iftm.client.services.analytics.LongIntMap;
+
+/*
+ * Índice em memória de cpf e nome para buscas por prefixo e por trecho.
+ * É montado a partir do banco quando a aplicação sobe e mantido pelos ClientChangedEvent
+ * publicados pelo ClientService. Enquanto não estiver pronto (ou com
+ * client.search-index.enabled=false), isReady() retorna false e as buscas vão ao banco.
+ * Com client.sharding.enabled=true o índice não é montado: os clientes estão nos shards, e as
+ * buscas vão a eles por scatter-gather.
+ */
+@Component
+public class ClientSearchIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(ClientSearchIndex.class);
+	// ids removidos lembrados para descartar eventos atrasados (os ids não são reutilizados)
+	private static final int RECENT_DELETES = 10_000;
+
+	private final boolean enabled;
+	private final ClientRepository repository;
+	private final TransactionTemplate readOnlyTx;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TextIndex cpf = new TextIndex();
+	private final TextIndex name = new TextIndex();
+	// versão aplicada por cliente, em arrays por linha como no TextIndex
+	private final LongIntMap versionRows = new LongIntMap();
+	private long[] versionIds = new long[16];
+	private long[] versions = new long[16];
+	// ids removidos há pouco, numa fila circular (id -> posição na fila)
+	private final LongIntMap deleted = new LongIntMap();
+	private final long[] recentDeletes = new long[RECENT_DELETES];
+	private int nextDelete;
+	private volatile boolean ready;
+
+	public ClientSearchIndex(@Value("${client.search-index.enabled:true}") boolean enabled,
+			@Value("${client.sharding.enabled:false}") boolean sharded, ClientRepository repository,
+			PlatformTransactionManager transactionManager) {
+		this.enabled = enabled && !sharded;
+		this.repository = repository;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void build() {
+		if (!enabled) {
+			return;
+		}
+		long start = System.nanoTime();
+		lock.writeLock().lock();
+		try {
+			readOnlyTx.executeWithoutResult(status -> {
+				try (Stream<ClientDTO> stream = repository.streamAll()) {
+					stream.forEach(this::put);
+				}
+			});
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Client search index built with {} clients in {} ms", cpf.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/*
+	 * Os eventos de transações concorrentes podem chegar fora de ordem (cada um dispara depois do
+	 * commit da sua transação, na thread dela): um evento com versão menor ou igual à já aplicada é
+	 * ignorado, e um cliente removido há pouco (RECENT_DELETES) não volta por um evento atrasado.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onClientChanged(ClientChangedEvent event) {
+		if (!enabled) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			if (event.getType() == ClientChangedEvent.Type.DELETED) {
+				cpf.remove(event.getId());
+				name.remove(event.getId());
+				removeVersion(event.getId());
+				rememberDeleted(event.getId());
+			} else if (event.getClient() != null && deleted.get(event.getId()) == LongIntMap.MISSING) {
+				// INCOME_UPDATED não muda cpf nem nome
+				put(event.getClient());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	public long[] cpfStartingWith(String text) {
+		return read(() -> cpf.startingWith(text));
+	}
+
+	public long[] cpfContaining(String text) {
+		return read(() -> cpf.containing(text));
+	}
+
+	public long[] nameStartingWith(String text) {
+		return read(() -> name.startingWith(text));
+	}
+
+	public long[] nameContaining(String text) {
+		return read(() -> name.containing(text));
+	}
+
+	public static boolean canSortBy(String property) {
+		return property.equals("id") || property.equals("cpf") || property.equals("name");
+	}
+
+	/*
+	 * Os primeiros limit ids (ids em ordem crescente, como as buscas retornam) na ordem do valor
+	 * guardado no índice (id, cpf ou name), com id como desempate. Nulos ficam no início em ordem
+	 * crescente, como no banco. Os valores são lidos uma vez e só limit ids são ordenados (TopK).
+	 */
+	public long[] sort(long[] ids, String property, boolean ascending, int limit) {
+		int size = Math.min(limit, ids.length);
+		if (property.equals("id")) {
+			return ascending ? Arrays.copyOf(ids, size) : reverse(Arrays.copyOfRange(ids, ids.length - size, ids.length));
+		}
+		TextIndex field = property.equals("cpf") ? cpf : name;
+		String[] values = new String[ids.length];
+		lock.readLock().lock();
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				values[i] = field.valueOf(ids[i]);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		int[] first = TopK.select(ids.length, size, (a, b) -> {
+			int order = compare(values[a], values[b]);
+			if (order == 0) {
+				order = Long.compare(ids[a], ids[b]);
+			}
+			return ascending ? order : -order;
+		});
+		long[] sorted = new long[first.length];
+		for (int i = 0; i < first.length; i++) {
+			sorted[i] = ids[first[i]];
+		}
+		return sorted;
+	}
+
+	private void put(ClientDTO client) {
+		Long version = client.getVersion();
+		int row = versionRows.get(client.getId());
+		if (version != null && row != LongIntMap.MISSING && version <= versions[row]) {
+			return;
+		}
+		cpf.put(client.getId(), client.getCpf());
+		name.put(client.getId(), client.getName());
+		if (version != null) {
+			if (row == LongIntMap.MISSING) {
+				row = versionRows.size();
+				if (row == versions.length) {
+					versionIds = Arrays.copyOf(versionIds, row * 2);
+					versions = Arrays.copyOf(versions, row * 2);
+				}
+				versionIds[row] = client.getId();
+				versionRows.put(client.getId(), row);
+			}
+			versions[row] = version;
+		}
+	}
+
+	private void removeVersion(long id) {
+		int row = versionRows.remove(id);
+		int last = versionRows.size();
+		if (row != LongIntMap.MISSING && row != last) {
+			versionIds[row] = versionIds[last];
+			versions[row] = versions[last];
+			versionRows.put(versionIds[row], row);
+		}
+	}
+
+	private void rememberDeleted(long id) {
+		if (deleted.get(id) != LongIntMap.MISSING) {
+			return;
+		}
+		if (deleted.size() == RECENT_DELETES) {
+			deleted.remove(recentDeletes[nextDelete]);
+		}
+		recentDeletes[nextDelete] = id;
+		deleted.put(id, nextDelete);
+		nextDelete = (nextDelete + 1) % RECENT_DELETES;
+	}
+
+	private static int compare(String a, String b) {
+		if (a == null || b == null) {
+			return a == b ? 0 : a == null ? -1 : 1;
+		}
+		return a.compareTo(b);
+	}
+
+	private long[] read(Supplier<long[]> query) {
+		lock.readLock().lock();
+		try {
+			return query.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static long[] reverse(long[] values) {
+		for (int i = 0, j = values.length - 1; i < j; i++, j--) {
+			long tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+		return values;
+	}
+}
@@ -0,0 +1,30 @@
+package com.iftm.client.services.search;
+
+import java.util.Arrays;
+
+final class LongArrayBuilder {
+
+	private long[] values = new long[16];
+	private int size;
+
+	void add(long value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	void addAll(long[] source, int length) {
+		if (size + length > values.length) {
+			values = Arrays.copyOf(values, Math.max(values.length * 2, size + length));
+		}
+		System.arraycopy(source, 0, values, size, length);
+		size += length;
+	}
+
+	long[] toSortedArray() {
+		long[] out = Arrays.copyOf(values, size);
+		Arrays.sort(out);
+		return out;
+	}
+}
@@ -0,0 +1,74 @@
+package com.iftm.client.services.search;
+
+import java.util.Arrays;
+
+/*
+ * Lista ordenada de ids em um long[] (sem boxing). Ids de clientes novos costumam ser
+ * maiores que os existentes, então a inserção normalmente só acrescenta no final.
+ */
+final class LongPostingList {
+
+	private long[] ids = new long[4];
+	private int size;
+
+	boolean add(long id) {
+		int pos = Arrays.binarySearch(ids, 0, size, id);
+		if (pos >= 0) {
+			return false;
+		}
+		pos = -pos - 1;
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+		System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+		ids[pos] = id;
+		size++;
+		return true;
+	}
+
+	boolean remove(long id) {
+		int pos = Arrays.binarySearch(ids, 0, size, id);
+		if (pos < 0) {
+			return false;
+		}
+		System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+		size--;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	long[] toArray() {
+		return Arrays.copyOf(ids, size);
+	}
+
+	void copyTo(LongArrayBuilder out) {
+		out.addAll(ids, size);
+	}
+
+	/*
+	 * Interseção de duas listas ordenadas (merge linear).
+	 */
+	static long[] intersect(long[] a, long[] b) {
+		long[] out = new long[Math.min(a.length, b.length)];
+		int i = 0, j = 0, n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				out[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+}
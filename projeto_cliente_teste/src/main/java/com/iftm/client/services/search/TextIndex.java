@@ -0,0 +1,128 @@
+package com.iftm.client.services.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.iftm.client.repositories.Accents;
+import com.iftm.client.services.analytics.LongIntMap;
+
+/*
+ * Índice de um campo texto: trie para prefixo e índice invertido de trigramas para trecho.
+ * A busca por trecho intersecta as listas dos trigramas do texto procurado e confere cada
+ * candidato contra o valor guardado. Textos com menos de 3 letras são conferidos um a um.
+ * A comparação ignora maiúsculas e acentos.
+ * Os valores ficam em arrays por linha (id -> linha num LongIntMap), sem um Long por cliente;
+ * a remoção move a última linha para o lugar da removida.
+ */
+final class TextIndex {
+
+	private static final int GRAM = 3;
+
+	private final Trie trie = new Trie();
+	private final Map<String, LongPostingList> grams = new HashMap<>();
+	private final LongIntMap rows = new LongIntMap();
+	private long[] ids = new long[16];
+	private String[] keys = new String[16];
+	private String[] values = new String[16];
+
+	void put(long id, String value) {
+		remove(id);
+		if (value == null) {
+			return;
+		}
+		String key = normalize(value);
+		int row = rows.size();
+		if (row == ids.length) {
+			ids = Arrays.copyOf(ids, row * 2);
+			keys = Arrays.copyOf(keys, row * 2);
+			values = Arrays.copyOf(values, row * 2);
+		}
+		ids[row] = id;
+		keys[row] = key;
+		values[row] = value;
+		rows.put(id, row);
+		trie.add(key, id);
+		for (int i = 0; i + GRAM <= key.length(); i++) {
+			grams.computeIfAbsent(key.substring(i, i + GRAM), g -> new LongPostingList()).add(id);
+		}
+	}
+
+	void remove(long id) {
+		int row = rows.remove(id);
+		if (row == LongIntMap.MISSING) {
+			return;
+		}
+		String key = keys[row];
+		int last = rows.size();
+		if (row != last) {
+			ids[row] = ids[last];
+			keys[row] = keys[last];
+			values[row] = values[last];
+			rows.put(ids[row], row);
+		}
+		keys[last] = null;
+		values[last] = null;
+		trie.remove(key, id);
+		for (int i = 0; i + GRAM <= key.length(); i++) {
+			String gram = key.substring(i, i + GRAM);
+			LongPostingList list = grams.get(gram);
+			if (list != null && list.remove(id) && list.isEmpty()) {
+				grams.remove(gram);
+			}
+		}
+	}
+
+	long[] startingWith(String text) {
+		return trie.startingWith(normalize(text));
+	}
+
+	long[] containing(String text) {
+		String key = normalize(text);
+		if (key.length() < GRAM) {
+			LongArrayBuilder out = new LongArrayBuilder();
+			for (int row = 0; row < rows.size(); row++) {
+				if (keys[row].contains(key)) {
+					out.add(ids[row]);
+				}
+			}
+			return out.toSortedArray();
+		}
+		long[] candidates = null;
+		for (int i = 0; i + GRAM <= key.length(); i++) {
+			LongPostingList list = grams.get(key.substring(i, i + GRAM));
+			if (list == null) {
+				return new long[0];
+			}
+			candidates = candidates == null ? list.toArray() : LongPostingList.intersect(candidates, list.toArray());
+			if (candidates.length == 0) {
+				return candidates;
+			}
+		}
+		LongArrayBuilder out = new LongArrayBuilder();
+		for (long id : candidates) {
+			if (keys[rows.get(id)].contains(key)) {
+				out.add(id);
+			}
+		}
+		return out.toSortedArray();
+	}
+
+	String valueOf(long id) {
+		int row = rows.get(id);
+		return row == LongIntMap.MISSING ? null : values[row];
+	}
+
+	int size() {
+		return rows.size();
+	}
+
+	/*
+	 * Mesma tabela de acentos da busca por nome no banco (Accents), para os dois caminhos
+	 * encontrarem os mesmos clientes.
+	 */
+	static String normalize(String value) {
+		return Accents.strip(value).toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,117 @@
+package com.iftm.client.services.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/*
+ * Árvore de prefixos: cada nó guarda os ids cujo valor termina nele.
+ * Os filhos ficam em arrays pequenos (cpf tem só 10 símbolos), sem mapas por nó.
+ */
+final class Trie {
+
+	private final Node root = new Node();
+
+	void add(String key, long id) {
+		Node node = root;
+		for (int i = 0; i < key.length(); i++) {
+			node = node.childOrCreate(key.charAt(i));
+		}
+		if (node.ids == null) {
+			node.ids = new LongPostingList();
+		}
+		node.ids.add(id);
+	}
+
+	/*
+	 * Remove o id e, de baixo para cima, os nós do caminho que ficaram sem ids e sem filhos.
+	 */
+	void remove(String key, long id) {
+		Node[] path = new Node[key.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < key.length(); i++) {
+			path[i + 1] = path[i].child(key.charAt(i));
+			if (path[i + 1] == null) {
+				return;
+			}
+		}
+		Node node = path[key.length()];
+		if (node.ids == null || !node.ids.remove(id)) {
+			return;
+		}
+		if (node.ids.isEmpty()) {
+			node.ids = null;
+		}
+		for (int i = key.length(); i > 0 && path[i].ids == null && path[i].size == 0; i--) {
+			path[i - 1].removeChild(key.charAt(i - 1));
+		}
+	}
+
+	long[] startingWith(String prefix) {
+		Node node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.child(prefix.charAt(i));
+		}
+		if (node == null) {
+			return new long[0];
+		}
+		LongArrayBuilder out = new LongArrayBuilder();
+		Deque<Node> pending = new ArrayDeque<>();
+		pending.push(node);
+		while (!pending.isEmpty()) {
+			Node current = pending.pop();
+			if (current.ids != null) {
+				current.ids.copyTo(out);
+			}
+			for (int i = 0; i < current.size; i++) {
+				pending.push(current.children[i]);
+			}
+		}
+		return out.toSortedArray();
+	}
+
+	private static final class Node {
+		private char[] keys = new char[0];
+		private Node[] children = new Node[0];
+		private int size;
+		private LongPostingList ids;
+
+		private Node child(char c) {
+			for (int i = 0; i < size; i++) {
+				if (keys[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		private void removeChild(char c) {
+			for (int i = 0; i < size; i++) {
+				if (keys[i] == c) {
+					size--;
+					keys[i] = keys[size];
+					children[i] = children[size];
+					children[size] = null;
+					return;
+				}
+			}
+		}
+
+		private Node childOrCreate(char c) {
+			Node existing = child(c);
+			if (existing != null) {
+				return existing;
+			}
+			if (size == keys.length) {
+				int capacity = Math.max(2, size * 2);
+				keys = Arrays.copyOf(keys, capacity);
+				children = Arrays.copyOf(children, capacity);
+			}
+			Node created = new Node();
+			keys[size] = c;
+			children[size] = created;
+			size++;
+			return created;
+		}
+	}
+}
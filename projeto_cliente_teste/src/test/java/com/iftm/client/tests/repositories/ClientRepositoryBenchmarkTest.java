@@ -0,0 +1,98 @@
+package com.iftm.client.tests.repositories;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.iftm.client.config.SecondLevelCacheConfig;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+
+/**
+ * Benchmark da busca por cpf: prefixo (usa o índice uk_client_cpf) contra "contém" (percorre a tabela).
+ * Só roda quando pedido, pois carrega muitas linhas:
+ *
+ * 	mvn test -Dtest=ClientRepositoryBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=1000000]
+ */
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ClientRepositoryBenchmarkTest {
+
+	private static final int REPETICOES = 20;
+
+	@Autowired
+	private ClientRepository repositorio;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Test
+	public void compararBuscaPorPrefixoComBuscaPorTrechoDoCpf() {
+		int linhas = Integer.getInteger("benchmark.rows", 1_000_000);
+		carregar(linhas);
+		PageRequest pageRequest = PageRequest.of(0, 12);
+
+		// aquecimento
+		for (int i = 0; i < 5; i++) {
+			repositorio.findByCpfStartingWith("4321", pageRequest);
+			repositorio.findByCpfLike("%4321%", pageRequest);
+		}
+
+		long[] prefixo = new long[REPETICOES];
+		long[] contem = new long[REPETICOES];
+		for (int i = 0; i < REPETICOES; i++) {
+			long inicio = System.nanoTime();
+			Page<Client> p = repositorio.findByCpfStartingWith("4321", pageRequest);
+			prefixo[i] = System.nanoTime() - inicio;
+			Assertions.assertFalse(p.isEmpty());
+
+			inicio = System.nanoTime();
+			Page<Client> c = repositorio.findByCpfLike("%4321%", pageRequest);
+			contem[i] = System.nanoTime() - inicio;
+			Assertions.assertFalse(c.isEmpty());
+		}
+
+		System.out.printf("linhas=%d prefixo: mediana=%.3f ms | contem: mediana=%.3f ms%n",
+				linhas, mediana(prefixo) / 1e6, mediana(contem) / 1e6);
+	}
+
+	/*
+	 * cpf = dígitos de i invertidos (11 dígitos), o que gera cpfs únicos e espalha os prefixos.
+	 */
+	private void carregar(int linhas) {
+		List<Object[]> lote = new ArrayList<>();
+		Timestamp nascimento = Timestamp.from(Instant.parse("1990-01-01T00:00:00Z"));
+		for (int i = 0; i < linhas; i++) {
+			String cpf = new StringBuilder(String.format("%011d", i)).reverse().toString();
+			lote.add(new Object[] { 1000L + i, "Cliente " + i, cpf, 1000.0 + (i % 10000), nascimento, i % 5 });
+			if (lote.size() == 10_000) {
+				inserir(lote);
+			}
+		}
+		inserir(lote);
+	}
+
+	private void inserir(List<Object[]> lote) {
+		jdbc.batchUpdate("INSERT INTO tb_client (id, name, cpf, income, birth_date, children, version) VALUES (?, ?, ?, ?, ?, ?, 0)", lote);
+		lote.clear();
+	}
+
+	private static double mediana(long[] tempos) {
+		long[] ordenados = tempos.clone();
+		Arrays.sort(ordenados);
+		return ordenados[ordenados.length / 2];
+	}
+}
@@ -3,21 +3,52 @@ package com.iftm.client.tests.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.resource.jdbc.spi.StatementInspector;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import com.iftm.client.config.SecondLevelCacheConfig;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
 import com.iftm.client.entities.Client;
 import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.repositories.ClientSeek;
+import com.iftm.client.repositories.ClientSpecifications;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "com.iftm.client.tests.repositories.ClientRepositoryTest$UltimoSql")
+@Import(SecondLevelCacheConfig.class)
 public class ClientRepositoryTest {
 		//private List<Client> clientesCadastrados;
 		
 		@Autowired
 		private ClientRepository repositorio;
+		
+		@Autowired
+		private JdbcTemplate jdbc;
+		
+		/*
+		 * Guarda o último SQL gerado pelo Hibernate, para o teste pedir o plano ao H2.
+		 */
+		public static class UltimoSql implements StatementInspector {
+			private static final long serialVersionUID = 1L;
+			static volatile String sql;
+
+			@Override
+			public String inspect(String sql) {
+				UltimoSql.sql = sql;
+				return sql;
+			}
+		}
 
 		/*
 		@BeforeEach
@@ -158,6 +189,113 @@ public class ClientRepositoryTest {
 			
 		}
 		
+		/**
+		 * Cenário de Teste - busca por nome no banco ignora acentos e maiúsculas, como o índice em memória.
+		 * 	- "conceicao%" encontra Conceição Evaristo (1)
+		 */
+		@Test
+		void testaBuscaPorNomeNoBancoIgnoraAcentos() {
+			List<ClientDTO> encontrados = repositorio.findByNameLikeIgnoreCase("conceicao%", PageRequest.of(0, 10)).getContent();
+			Assertions.assertEquals(1, encontrados.size());
+			Assertions.assertEquals(1L, encontrados.get(0).getId());
+		}
+		
+		/**
+		 * Cenário de Teste - busca por Specification projetada em ClientDTO, com o total por count.
+		 * 	- income >= 4800 ordenado por income, 2 por página: Jose Saramago (7) e Carolina Maria de Jesus (4), total 3
+		 */
+		@Test
+		void testaBuscaPorSpecificationProjetaDto() {
+			ClientFilterDTO filtro = new ClientFilterDTO();
+			filtro.setMinIncome(4800.0);
+			Page<ClientDTO> pagina = repositorio.findDtoAll(ClientSpecifications.matching(filtro),
+					PageRequest.of(0, 2, Sort.by("income")));
+			Assertions.assertEquals(3, pagina.getTotalElements());
+			Assertions.assertEquals(List.of(7L, 4L), pagina.map(ClientDTO::getId).getContent());
+			Assertions.assertTrue(UltimoSql.sql.startsWith("select count("));
+		}
+		
+		/**
+		 * Cenário de Teste - paginação por keyset de clientes com salário maior que 4800,
+		 * ordenados por income, 2 por página.
+		 * 	- página 1: Jose Saramago (7, 5000.0) e Carolina Maria de Jesus (4, 7500.0) + 1 registro extra
+		 * 	- página 2 (continuando de id 4 / 7500.0): somente Toni Morrison (8, 10000.0)
+		 */
+		@Test
+		void testaBuscaPorKeysetContinuaAPartirDoUltimoRegistro() {
+			List<ClientDTO> pagina1 = repositorio.findByIncomeGreaterThanSeek(4800.0,
+					new ClientSeek("income", Direction.ASC, null, null, 2));
+			Assertions.assertEquals(3, pagina1.size());
+			Assertions.assertEquals(7L, pagina1.get(0).getId());
+			Assertions.assertEquals(4L, pagina1.get(1).getId());
+
+			List<ClientDTO> pagina2 = repositorio.findByIncomeGreaterThanSeek(4800.0,
+					new ClientSeek("income", Direction.ASC, 7500.0, 4L, 2));
+			Assertions.assertEquals(1, pagina2.size());
+			Assertions.assertEquals(8L, pagina2.get(0).getId());
+		}
+		
+		/**
+		 * Cenário de Teste - plano das páginas seguintes da paginação por keyset
+		 * Resultado:
+		 * 		- o banco começa a leitura na posição do cursor, pelo índice (campo, id)
+		 * 		- ASC: lê já na ordem da página ("index sorted"), sem ordenar a tabela
+		 * 		- DESC: usa o mesmo índice ASC para a faixa; o H2 1.4 não percorre índices de trás
+		 * 		  para frente, então ordena só as linhas da faixa (outros bancos leem o índice ao contrário)
+		 */
+		@Test
+		void testaBuscaPorKeysetUsaIndiceComposto() {
+			repositorio.findByIncomeGreaterThanSeek(4800.0, new ClientSeek("income", Direction.ASC, 7500.0, 4L, 2));
+			String plano = plano(UltimoSql.sql);
+			Assertions.assertTrue(plano.contains("IDX_CLIENT_INCOME_ID:"), plano);
+			Assertions.assertTrue(plano.contains("index sorted"), plano);
+
+			repositorio.findAllSeek(new ClientSeek("name", Direction.DESC, "Jose Saramago", 7L, 2));
+			plano = plano(UltimoSql.sql);
+			Assertions.assertTrue(plano.contains("IDX_CLIENT_NAME_ID: NAME <="), plano);
+			Assertions.assertFalse(plano.contains("index sorted"), plano);
+		}
+		
+		/**
+		 * Cenário de Teste - keyset por income com clientes de income nulo, 2 por página
+		 * Resultado:
+		 * 		- ASC: os nulos vêm primeiro; DESC: por último
+		 * 		- nos dois sentidos todos os clientes aparecem uma única vez
+		 */
+		@Test
+		void testaBuscaPorKeysetPercorreNulosNasDuasDirecoes() {
+			for (int i = 0; i < 3; i++) {
+				repositorio.save(new Client(null, "Sem renda " + i, "9990000000" + i, null, null, 0));
+			}
+			long total = repositorio.count();
+			for (Direction direcao : Direction.values()) {
+				List<ClientDTO> vistos = new java.util.ArrayList<>();
+				ClientSeek seek = new ClientSeek("income", direcao, null, null, 2);
+				while (true) {
+					List<ClientDTO> pagina = repositorio.findAllSeek(seek);
+					vistos.addAll(pagina.subList(0, Math.min(2, pagina.size())));
+					if (pagina.size() <= 2) {
+						break;
+					}
+					ClientDTO ultimo = pagina.get(1);
+					seek = new ClientSeek("income", direcao, ultimo.getIncome(), ultimo.getId(), 2);
+				}
+				Assertions.assertEquals(total, vistos.stream().map(ClientDTO::getId).distinct().count());
+				Assertions.assertEquals(total, vistos.size());
+				int nulo = direcao == Direction.ASC ? 0 : vistos.size() - 1;
+				Assertions.assertNull(vistos.get(nulo).getIncome());
+			}
+		}
+		
+		/*
+		 * EXPLAIN do SQL com todos os parâmetros valendo 0: o plano não depende dos valores.
+		 */
+		private String plano(String sql) {
+			Object[] parametros = new Object[sql.length() - sql.replace("?", "").length()];
+			java.util.Arrays.fill(parametros, 0);
+			return jdbc.queryForObject("EXPLAIN " + sql, String.class, parametros);
+		}
+		
 		/**
 		 * Exemplo de sala 02
 		 * Cenário de Teste - buscar clientes que tenham no mínimo X filhos
@@ -0,0 +1,100 @@
+package com.iftm.client.tests.resources;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+
+/**
+ * Teste de carga da API: vazão e latência (p50/p99) com muitas conexões simultâneas.
+ * Só roda quando pedido; para comparar o pool de threads do Tomcat com virtual threads:
+ *
+ * 	mvn test -Dtest=ClientResourceLoadTest -Dloadtest=true [-Dloadtest.concurrency=400 -Dloadtest.requests=40000]
+ * 	mvn -Pvirtual-threads test -Dtest=ClientResourceLoadTest -Dloadtest=true
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class ClientResourceLoadTest {
+
+	private static final String[] CAMINHOS = {
+			"/clients?linesPerPage=12&orderBy=id",
+			"/clients/1",
+			"/clients/income/?income=1500.0",
+			"/clients/cpf/?cpf=104",
+			"/clients/incomeGreaterThan/?income=4000.0" };
+
+	@LocalServerPort
+	private int porta;
+
+	@Value("${client.virtual-threads.enabled:false}")
+	private boolean virtualThreads;
+
+	@Test
+	public void medirVazaoELatencia() throws Exception {
+		int concorrencia = Integer.getInteger("loadtest.concurrency", 400);
+		int requisicoes = Integer.getInteger("loadtest.requests", 40_000);
+		HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+		// aquecimento
+		executar(http, 50, 5_000);
+
+		long inicio = System.nanoTime();
+		long[] latencias = executar(http, concorrencia, requisicoes);
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+
+		Arrays.sort(latencias);
+		System.out.printf("java=%d virtualThreads=%s concorrencia=%d requisicoes=%d vazao=%.0f req/s p50=%.2f ms p99=%.2f ms%n",
+				Runtime.version().feature(), virtualThreads, concorrencia, requisicoes, requisicoes / segundos,
+				percentil(latencias, 0.50) / 1e6, percentil(latencias, 0.99) / 1e6);
+	}
+
+	/*
+	 * "concorrencia" clientes fazem requisições bloqueantes até completar o total; retorna a latência de cada uma.
+	 */
+	private long[] executar(HttpClient http, int concorrencia, int requisicoes) throws Exception {
+		long[] latencias = new long[requisicoes];
+		AtomicInteger proxima = new AtomicInteger();
+		ExecutorService clientes = Executors.newFixedThreadPool(concorrencia);
+		try {
+			List<Future<?>> tarefas = new ArrayList<>();
+			for (int c = 0; c < concorrencia; c++) {
+				tarefas.add(clientes.submit(() -> {
+					for (int i = proxima.getAndIncrement(); i < requisicoes; i = proxima.getAndIncrement()) {
+						HttpRequest request = HttpRequest.newBuilder(
+								URI.create("http://localhost:" + porta + CAMINHOS[i % CAMINHOS.length])).GET().build();
+						long t = System.nanoTime();
+						HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+						latencias[i] = System.nanoTime() - t;
+						Assertions.assertEquals(200, response.statusCode());
+					}
+					return null;
+				}));
+			}
+			for (Future<?> tarefa : tarefas) {
+				tarefa.get();
+			}
+		} finally {
+			clientes.shutdownNow();
+		}
+		return latencias;
+	}
+
+	private static long percentil(long[] ordenados, double p) {
+		return ordenados[Math.min(ordenados.length - 1, (int) Math.ceil(p * ordenados.length) - 1)];
+	}
+}
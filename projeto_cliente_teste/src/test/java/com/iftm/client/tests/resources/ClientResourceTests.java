@@ -1,28 +1,43 @@
 package com.iftm.client.tests.resources;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.iftm.client.dto.ClientDTO;
 import com.iftm.client.entities.Client;
 
-@SpringBootTest
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = "client.query-budget.mode=fail")
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 public class ClientResourceTests {
 
 	private int qtdClientes = 11;
@@ -33,6 +48,9 @@ public class ClientResourceTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private MeterRegistry registry;
+
 	// Para o teste real da aplicação iremos comentar ou retirar.
 	// @MockBean
 	// private ClientService service;
@@ -93,12 +111,24 @@ public class ClientResourceTests {
 		resultado.andExpect(jsonPath("$.status").value(404));
 	}
 
+	@Test
+	public void testarBuscaPorCpfExatoRetornaClienteOuNotFound() throws Exception {
+		mockMvc.perform(get("/clients/cpf/{cpf}", "10619244882").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.id").value(2L))
+				.andExpect(jsonPath("$.name").value("Lázaro Ramos"));
+
+		mockMvc.perform(get("/clients/cpf/{cpf}", "1061924488").accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isNotFound());
+	}
+
 	// Atividade: insert deveria retornar "created" (código 201), bem como o produto criado. Verifique no mínimo dois atributos.
 	@Test
 	public void insertRetornaCreatedEProdutoCriado() throws Exception {
 
+		// cpf diferente do usado em updateRetornaOk (cpf é único e os testes dividem o banco)
 		ClientDTO clientDTO = new ClientDTO(
-			new Client(7l, "Ana Maria Silva", "00012345678", 7000.0, Instant.parse("2019-10-01T08:25:24.00Z"), 1));
+			new Client(7l, "Ana Maria Silva", "00012345670", 7000.0, Instant.parse("2019-10-01T08:25:24.00Z"), 1));
 
 		String json = objectMapper.writeValueAsString(clientDTO);
 
@@ -109,9 +139,29 @@ public class ClientResourceTests {
 
 		result.andExpect(status().isCreated());
 		result.andExpect(jsonPath("$.cpf").exists());
-		result.andExpect(jsonPath("$.cpf").value("00012345678"));
+		result.andExpect(jsonPath("$.cpf").value("00012345670"));
 		result.andExpect(jsonPath("$.name").exists());
 		result.andExpect(jsonPath("$.name").value("Ana Maria Silva"));
+
+		mockMvc.perform(delete("/clients/{id}", objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("id").asLong()));
+	}
+
+	// insert ignora o id do corpo e sempre cria um cliente novo.
+	@Test
+	public void insertIgnoraIdDoCorpo() throws Exception {
+		ClientDTO clientDTO = new ClientDTO(new Client(7l, "Id Ignorado", "00012345671", 7000.0,
+				Instant.parse("2019-10-01T08:25:24.00Z"), 1));
+
+		MvcResult result = mockMvc.perform(post("/clients")
+				.content(objectMapper.writeValueAsString(clientDTO))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn();
+
+		long id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
+		Assertions.assertNotEquals(7L, id);
+		mockMvc.perform(delete("/clients/{id}", id)).andExpect(status().isNoContent());
 	}
 
 	// Atividade: delete deveria retornar "no content" (código 204) quando o id existir
@@ -205,4 +255,497 @@ public class ClientResourceTests {
 		result.andExpect(status().is(404));
 	}
 
-}
\ No newline at end of file
+	// Paginação por keyset: percorrer todas as páginas pelo cursor deve trazer cada cliente uma única vez,
+	// na ordem pedida, e a mesma quantidade de clientes da listagem paginada tradicional.
+	@Test
+	public void seekPercorreTodosClientesSemRepeticao() throws Exception {
+		MvcResult total = mockMvc.perform(get("/clients")
+				.param("linesPerPage", "1000")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn();
+		long totalElements = objectMapper.readTree(total.getResponse().getContentAsString()).get("totalElements").asLong();
+
+		Set<Long> ids = new HashSet<>();
+		double ultimoIncome = Double.NEGATIVE_INFINITY;
+		String cursor = null;
+		do {
+			MvcResult result = mockMvc.perform(get("/clients/seek")
+					.param("linesPerPage", "5")
+					.param("orderBy", "income")
+					.param("cursor", cursor == null ? "" : cursor)
+					.accept(MediaType.APPLICATION_JSON))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.content").isArray())
+					.andReturn();
+			JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+			for (JsonNode client : page.get("content")) {
+				Assertions.assertTrue(ids.add(client.get("id").asLong()));
+				Assertions.assertTrue(client.get("income").asDouble() >= ultimoIncome);
+				ultimoIncome = client.get("income").asDouble();
+			}
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+		} while (cursor != null);
+
+		Assertions.assertEquals(totalElements, ids.size());
+	}
+
+	@Test
+	public void seekRetornaBadRequestParaCursorInvalido() throws Exception {
+		mockMvc.perform(get("/clients/seek")
+				.param("cursor", "invalido")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Bad request"));
+	}
+
+	// Listagem sem COUNT(*): a Slice não tem totalElements, e o total aproximado só vem quando pedido.
+	@Test
+	public void sliceRetornaOkSemTotalEComTotalAproximadoQuandoPedido() throws Exception {
+		mockMvc.perform(get("/clients/incomeGreaterThan/slice")
+				.param("income", "4800")
+				.param("linesPerPage", "2")
+				.param("orderBy", "income")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content").isArray())
+				.andExpect(jsonPath("$.numberOfElements").value(2))
+				.andExpect(jsonPath("$.last").value(false))
+				.andExpect(jsonPath("$.totalElements").doesNotExist())
+				.andExpect(header().doesNotExist("X-Total-Count-Approximate"));
+
+		mockMvc.perform(get("/clients/incomeGreaterThan/slice")
+				.param("income", "4800")
+				.param("approximateTotal", "true")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("X-Total-Count-Approximate"));
+	}
+
+	// Inserção em lote: cada linha tem o seu resultado; linhas NDJSON inválidas falham sem derrubar as outras.
+	@Test
+	public void insertBatchRetornaResultadoPorLinha() throws Exception {
+		String ndjson = "{\"name\":\"Lote Um\",\"cpf\":\"55500000001\",\"income\":1000.0,\"children\":0}\n"
+				+ "isto nao e json\n"
+				+ "\n"
+				+ "{\"name\":\"Lote Dois\",\"cpf\":\"55500000002\",\"income\":2000.0,\"children\":1}\n";
+
+		MvcResult result = mockMvc.perform(post("/clients/batch")
+				.content(ndjson)
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3))
+				.andExpect(jsonPath("$[0].status").value("CREATED"))
+				.andExpect(jsonPath("$[1].status").value("FAILED"))
+				.andExpect(jsonPath("$[1].index").value(1))
+				.andExpect(jsonPath("$[2].status").value("CREATED"))
+				.andReturn();
+
+		for (JsonNode row : objectMapper.readTree(result.getResponse().getContentAsString())) {
+			if (row.get("id").isNull()) {
+				continue;
+			}
+			mockMvc.perform(get("/clients/{id}", row.get("id").asLong()))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.cpf").exists());
+			mockMvc.perform(delete("/clients/{id}", row.get("id").asLong()))
+					.andExpect(status().isNoContent());
+		}
+	}
+
+	// Exportação: CSV com cabeçalho e uma linha por cliente, escrito de forma assíncrona (streaming).
+	// O SELECT feito na thread do streaming conta nos comandos da requisição.
+	@Test
+	public void exportCsvRetornaCabecalhoEUmaLinhaPorCliente() throws Exception {
+		double comandosAntes = comandosDoExport();
+		MvcResult total = mockMvc.perform(get("/clients").param("linesPerPage", "1000"))
+				.andExpect(status().isOk())
+				.andReturn();
+		long totalElements = objectMapper.readTree(total.getResponse().getContentAsString()).get("totalElements").asLong();
+
+		MvcResult inicio = mockMvc.perform(get("/clients/export").param("format", "csv"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		MvcResult result = mockMvc.perform(asyncDispatch(inicio))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		String[] linhas = result.getResponse().getContentAsString().split("\n");
+		Assertions.assertEquals("id,name,cpf,income,birthDate,children", linhas[0]);
+		Assertions.assertEquals(totalElements, linhas.length - 1);
+		Assertions.assertTrue(comandosDoExport() > comandosAntes);
+	}
+
+	private double comandosDoExport() {
+		DistributionSummary comandos = registry.find("client.request.statements").tag("uri", "/clients/export").summary();
+		return comandos == null ? 0 : comandos.totalAmount();
+	}
+
+	@Test
+	public void exportRetornaBadRequestParaFormatoInvalido() throws Exception {
+		mockMvc.perform(get("/clients/export").param("format", "xml"))
+				.andExpect(status().isBadRequest());
+	}
+
+	// Busca por cpf: o modo padrão é prefixo; mode=contains mantém a busca por trecho.
+	@Test
+	public void findByCpfUsaPrefixoPorPadraoEContainsQuandoPedido() throws Exception {
+		mockMvc.perform(get("/clients/cpf/")
+				.param("cpf", "104")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[?(@.id =='%s')]", 4L).exists())
+				.andExpect(jsonPath("$.content[?(@.id =='%s')]", 5L).exists())
+				.andExpect(jsonPath("$.numberOfElements").value(2));
+
+		mockMvc.perform(get("/clients/cpf/")
+				.param("cpf", "447")
+				.param("mode", "contains")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[?(@.id =='%s')]", 4L).exists())
+				.andExpect(jsonPath("$.numberOfElements").value(1));
+
+		// curingas digitados são comparados literalmente, no índice e no banco (slice)
+		mockMvc.perform(get("/clients/cpf/")
+				.param("cpf", "10_1")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.numberOfElements").value(0));
+		mockMvc.perform(get("/clients/cpf/slice")
+				.param("cpf", "10_1")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.numberOfElements").value(0));
+		mockMvc.perform(get("/clients/cpf/slice")
+				.param("cpf", "%447")
+				.param("mode", "contains")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.numberOfElements").value(0));
+	}
+
+	// Busca com filtros combinados: faixa de income, mínimo de filhos, nascidos até 2000, prefixos de nome e cpf.
+	@Test
+	public void searchCombinaFiltrosNumaUnicaConsulta() throws Exception {
+		mockMvc.perform(get("/clients/search")
+				.param("minIncome", "2000")
+				.param("maxIncome", "3000")
+				.param("minChildren", "2")
+				.param("bornTo", "2000-01-01T00:00:00Z")
+				.param("orderBy", "id")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].id").value(2L))
+				.andExpect(jsonPath("$.content[1].id").value(5L))
+				.andExpect(jsonPath("$.totalElements").value(2));
+
+		mockMvc.perform(get("/clients/search")
+				.param("namePrefix", "Jo")
+				.param("cpfPrefix", "1020")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].id").value(12L))
+				.andExpect(jsonPath("$.totalElements").value(1));
+
+		mockMvc.perform(get("/clients/search")
+				.param("minIncome", "5000")
+				.param("maxIncome", "1000")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+
+	// cpf é único: inserir um cpf já cadastrado retorna bad request (código 400).
+	@Test
+	public void insertComCpfExistenteRetornaBadRequest() throws Exception {
+		ClientDTO clientDTO = new ClientDTO(null, "Cpf Repetido", "10419244771", 1000.0,
+				Instant.parse("1990-01-01T00:00:00Z"), 0);
+
+		mockMvc.perform(post("/clients")
+				.content(objectMapper.writeValueAsString(clientDTO))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Database exception"));
+	}
+
+	// Busca por nome: prefixo (padrão) e trecho, sem diferenciar maiúsculas e acentos.
+	@Test
+	public void findByNameRetornaClientesPorPrefixoETrecho() throws Exception {
+		mockMvc.perform(get("/clients/name/")
+				.param("name", "jorge")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[?(@.id =='%s')]", 12L).exists())
+				.andExpect(jsonPath("$.numberOfElements").value(1));
+
+		mockMvc.perform(get("/clients/name/")
+				.param("name", "EVARISTO")
+				.param("mode", "contains")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[?(@.id =='%s')]", 1L).exists())
+				.andExpect(jsonPath("$.totalElements").value(1));
+	}
+
+	// fields=id,name: cada cliente da página traz só os campos pedidos; campo inexistente retorna 400.
+	@Test
+	public void findAllComFieldsRetornaSomenteCamposPedidos() throws Exception {
+		mockMvc.perform(get("/clients")
+				.param("fields", "id,name")
+				.param("orderBy", "id")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content[0].id").value(1L))
+				.andExpect(jsonPath("$.content[0].name").exists())
+				.andExpect(jsonPath("$.content[0].cpf").doesNotExist())
+				.andExpect(jsonPath("$.content[0].income").doesNotExist());
+
+		mockMvc.perform(get("/clients")
+				.param("fields", "id,senha")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest());
+	}
+
+	// Estatísticas de income: a soma do histograma é o count e os percentis ficam entre min e max.
+	@Test
+	public void incomeStatsRetornaAgregadosHistogramaEPercentis() throws Exception {
+		MvcResult result = mockMvc.perform(get("/clients/stats/income")
+				.param("incomeGreaterThan", "4800")
+				.param("buckets", "4")
+				.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.histogram.length()").value(4))
+				.andReturn();
+		JsonNode stats = objectMapper.readTree(result.getResponse().getContentAsString());
+		long count = stats.get("count").asLong();
+		double min = stats.get("min").asDouble();
+		double max = stats.get("max").asDouble();
+		Assertions.assertTrue(count > 0);
+		Assertions.assertTrue(min > 4800.0);
+		Assertions.assertEquals(stats.get("sum").asDouble() / count, stats.get("mean").asDouble(), 0.001);
+		long total = 0;
+		for (JsonNode bucket : stats.get("histogram")) {
+			total += bucket.get("count").asLong();
+		}
+		Assertions.assertEquals(count, total);
+		double anterior = min;
+		for (String p : new String[] { "p50", "p90", "p95", "p99" }) {
+			double valor = stats.get("percentiles").get(p).asDouble();
+			Assertions.assertTrue(valor >= anterior && valor <= max, p);
+			anterior = valor;
+		}
+
+		mockMvc.perform(get("/clients/stats/income").param("buckets", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	// Purge: remove os clientes acima do income informado e tira do cache os que já tinham sido lidos.
+	@Test
+	public void purgeRemoveClientesAcimaDoIncomeERetornaTotal() throws Exception {
+		String ndjson = "{\"name\":\"Purge Um\",\"cpf\":\"66600000001\",\"income\":900000001.0,\"children\":0}\n"
+				+ "{\"name\":\"Purge Dois\",\"cpf\":\"66600000002\",\"income\":900000002.0,\"children\":0}\n"
+				+ "{\"name\":\"Purge Tres\",\"cpf\":\"66600000003\",\"income\":900000003.0,\"children\":0}\n";
+		MvcResult result = mockMvc.perform(post("/clients/batch")
+				.content(ndjson)
+				.contentType(MediaType.APPLICATION_NDJSON))
+				.andExpect(status().isOk())
+				.andReturn();
+		long id = objectMapper.readTree(result.getResponse().getContentAsString()).get(0).get("id").asLong();
+		mockMvc.perform(get("/clients/{id}", id))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(delete("/clients/admin/purge").param("incomeGreaterThan", "900000000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.deleted").value(3))
+				.andExpect(jsonPath("$.chunks").value(1))
+				.andExpect(jsonPath("$.elapsedMillis").exists());
+
+		mockMvc.perform(get("/clients/{id}", id))
+				.andExpect(status().isNotFound());
+	}
+
+	// Job de importação: o POST responde 202 e o GET acompanha o job até terminar.
+	@Test
+	public void jobDeImportacaoRodaEmSegundoPlano() throws Exception {
+		String pedido = "{\"type\":\"IMPORT\",\"clients\":["
+				+ "{\"name\":\"Job Um\",\"cpf\":\"77700000001\",\"income\":1000.0,\"children\":0},"
+				+ "{\"name\":\"Job Dois\",\"cpf\":\"77700000002\",\"income\":2000.0,\"children\":0}]}";
+		MvcResult result = mockMvc.perform(post("/clients/jobs")
+				.content(pedido)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Location"))
+				.andExpect(jsonPath("$.total").value(2))
+				.andReturn();
+		String id = objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+
+		JsonNode job = null;
+		for (int i = 0; i < 500; i++) {
+			job = objectMapper.readTree(mockMvc.perform(get("/clients/jobs/{id}", id))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString());
+			if (!job.get("finishedAt").isNull()) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		Assertions.assertEquals("SUCCEEDED", job.get("status").asText());
+		Assertions.assertEquals(2, job.get("processed").asLong());
+		for (JsonNode row : job.get("result")) {
+			Assertions.assertEquals("CREATED", row.get("status").asText());
+			mockMvc.perform(delete("/clients/{id}", row.get("id").asLong()))
+					.andExpect(status().isNoContent());
+		}
+
+		mockMvc.perform(get("/clients/jobs/{id}", "nao-existe"))
+				.andExpect(status().isNotFound());
+	}
+
+	// ETag: If-None-Match igual responde 304 sem corpo; PUT com If-Match antigo responde 412
+	// e com versão antiga no corpo responde 409.
+	@Test
+	public void etagPermite304EControleOtimistaNoUpdate() throws Exception {
+		MvcResult criado = mockMvc.perform(post("/clients")
+				.content("{\"name\":\"ETag Um\",\"cpf\":\"88800000009\",\"income\":1000.0,\"children\":0}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn();
+		long id = objectMapper.readTree(criado.getResponse().getContentAsString()).get("id").asLong();
+
+		MvcResult lido = mockMvc.perform(get("/clients/{id}", id))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn();
+		String etag = lido.getResponse().getHeader("ETag");
+		String corpo = lido.getResponse().getContentAsString();
+		Assertions.assertTrue(etag.startsWith("W/"));
+
+		mockMvc.perform(get("/clients/{id}", id).header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		MvcResult lista = mockMvc.perform(get("/clients").param("orderBy", "id"))
+				.andExpect(status().isOk())
+				.andReturn();
+		mockMvc.perform(get("/clients").param("orderBy", "id").header("If-None-Match", lista.getResponse().getHeader("ETag")))
+				.andExpect(status().isNotModified());
+
+		MvcResult atualizado = mockMvc.perform(put("/clients/{id}", id)
+				.header("If-Match", etag)
+				.content(corpo.replace("1000.0", "2000.0"))
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn();
+		Assertions.assertNotEquals(etag, atualizado.getResponse().getHeader("ETag"));
+
+		mockMvc.perform(put("/clients/{id}", id)
+				.header("If-Match", etag)
+				.content(corpo)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(put("/clients/{id}", id)
+				.content(corpo)
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isConflict());
+
+		mockMvc.perform(get("/clients/{id}", id).header("If-None-Match", etag))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(delete("/clients/{id}", id))
+				.andExpect(status().isNoContent());
+	}
+
+	// PATCH (merge patch): só os campos enviados mudam; null apaga o campo; id e campos desconhecidos dão 400.
+	@Test
+	public void patchAlteraSomenteCamposEnviados() throws Exception {
+		MvcResult criado = mockMvc.perform(post("/clients")
+				.content("{\"name\":\"Patch Um\",\"cpf\":\"88800000001\",\"income\":1000.0,\"children\":2}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn();
+		long id = objectMapper.readTree(criado.getResponse().getContentAsString()).get("id").asLong();
+
+		mockMvc.perform(patch("/clients/{id}", id)
+				.content("{\"income\":1500.0,\"children\":null}")
+				.contentType("application/merge-patch+json"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Patch Um"))
+				.andExpect(jsonPath("$.cpf").value("88800000001"))
+				.andExpect(jsonPath("$.income").value(1500.0))
+				.andExpect(jsonPath("$.children").doesNotExist())
+				.andExpect(jsonPath("$.version").value(1));
+
+		mockMvc.perform(patch("/clients/{id}", id)
+				.content("{\"id\":1}")
+				.contentType("application/merge-patch+json"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(patch("/clients/{id}", id)
+				.content("{\"salario\":1.0}")
+				.contentType("application/merge-patch+json"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(patch("/clients/{id}", id)
+				.content("{\"income\":2000.0,\"version\":0}")
+				.contentType("application/merge-patch+json"))
+				.andExpect(status().isConflict());
+		mockMvc.perform(patch("/clients/{id}", 999999L)
+				.content("{\"income\":2000.0}")
+				.contentType("application/merge-patch+json"))
+				.andExpect(status().isNotFound());
+
+		mockMvc.perform(delete("/clients/{id}", id))
+				.andExpect(status().isNoContent());
+	}
+
+	// PATCH /clients/income: income de vários clientes num UPDATE em lote, com resultado por linha.
+	@Test
+	public void patchIncomeEmLoteRetornaResultadoPorLinha() throws Exception {
+		MvcResult criado = mockMvc.perform(post("/clients")
+				.content("{\"name\":\"Patch Lote\",\"cpf\":\"88800000002\",\"income\":1000.0,\"children\":0}")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isCreated())
+				.andReturn();
+		long id = objectMapper.readTree(criado.getResponse().getContentAsString()).get("id").asLong();
+		mockMvc.perform(get("/clients/{id}", id))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(patch("/clients/income")
+				.content("[{\"id\":" + id + ",\"income\":3200.0},{\"id\":999999,\"income\":1.0},{\"income\":1.0}]")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].status").value("UPDATED"))
+				.andExpect(jsonPath("$[1].status").value("FAILED"))
+				.andExpect(jsonPath("$[1].message").value("Id not found"))
+				.andExpect(jsonPath("$[2].status").value("FAILED"));
+
+		mockMvc.perform(get("/clients/{id}", id))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.income").value(3200.0))
+				.andExpect(jsonPath("$.version").value(1));
+
+		mockMvc.perform(delete("/clients/{id}", id))
+				.andExpect(status().isNoContent());
+	}
+
+	// /actuator/prometheus: tempos do service e do repository, erros tratados e pool do Hikari.
+	@Test
+	public void prometheusExpoeMetricasDoServiceRepositoryEErros() throws Exception {
+		mockMvc.perform(get("/clients/{id}", 999999L))
+				.andExpect(status().isNotFound());
+
+		String metricas = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		Assertions.assertTrue(metricas.contains("client_service_seconds_bucket{"));
+		Assertions.assertTrue(metricas.contains("method=\"findById\""));
+		Assertions.assertTrue(metricas.contains("client_repository_seconds_count{"));
+		Assertions.assertTrue(metricas.contains("client_errors_total{"));
+		Assertions.assertTrue(metricas.contains("exception=\"ResourceNotFoundException\""));
+		Assertions.assertTrue(metricas.contains("hikaricp_connections_acquire_seconds"));
+		Assertions.assertTrue(metricas.contains("cache_gets_total{"));
+		Assertions.assertTrue(metricas.contains("client_request_statements_count{"));
+	}
+
+}
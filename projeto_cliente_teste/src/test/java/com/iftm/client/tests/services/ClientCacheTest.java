@@ -0,0 +1,165 @@
+package com.iftm.client.tests.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientCache;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.exceptions.ConflictException;
+
+@SpringBootTest
+public class ClientCacheTest {
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private ClientRepository repositorio;
+
+	@Autowired
+	private ClientCache cache;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	/**
+	 * Cenário de Teste: uma escrita acontece enquanto a leitura ainda está buscando no banco.
+	 * O valor lido (velho) não pode ficar no cache depois da invalidação.
+	 */
+	@Test
+	public void testarLeituraConcorrenteComEscritaNaoGuardaValorVelho() {
+		ClientCache local = new ClientCache(true, 100, Duration.ofMinutes(1));
+		ClientDTO velho = new ClientDTO(1L, "Velho", "1", 1000.0, Instant.parse("2000-01-01T00:00:00Z"), 0);
+		ClientDTO novo = new ClientDTO(1L, "Novo", "1", 2000.0, Instant.parse("2000-01-01T00:00:00Z"), 0);
+
+		ClientDTO lido = local.get(1L, id -> {
+			local.invalidate(id);
+			return velho;
+		});
+		Assertions.assertEquals("Velho", lido.getName());
+		Assertions.assertEquals("Novo", local.get(1L, id -> novo).getName());
+		Assertions.assertEquals("Novo", local.get(1L, id -> velho).getName());
+		Assertions.assertEquals(1, local.stats().hitCount());
+	}
+
+	/**
+	 * Cenário de Teste: várias threads atualizam o mesmo cliente ao mesmo tempo enquanto outras
+	 * leem por findById. Ao final, o valor servido pelo cache deve ser o mesmo gravado no banco.
+	 */
+	@Test
+	public void testarCachePermaneceConsistenteComEscritasConcorrentes() throws Exception {
+		ClientDTO inserido = servico.insert(
+				new ClientDTO(null, "Cliente Cache", "99900011122", 1000.0, Instant.parse("1990-01-01T00:00:00Z"), 0));
+		Long id = inserido.getId();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (int rodada = 0; rodada < 5; rodada++) {
+				AtomicBoolean escrevendo = new AtomicBoolean(true);
+				List<Future<?>> tarefas = new ArrayList<>();
+				for (int leitor = 0; leitor < 4; leitor++) {
+					tarefas.add(executor.submit(() -> {
+						while (escrevendo.get()) {
+							servico.findById(id);
+						}
+					}));
+				}
+				List<Future<?>> escritores = new ArrayList<>();
+				for (int escritor = 0; escritor < 4; escritor++) {
+					double base = rodada * 1000 + escritor * 100;
+					escritores.add(executor.submit(() -> {
+						for (int i = 0; i < 20; i++) {
+							atualizar(id, new ClientDTO(id, "Cliente Cache", "99900011122", base + i,
+									Instant.parse("1990-01-01T00:00:00Z"), 0));
+						}
+					}));
+				}
+				for (Future<?> escritor : escritores) {
+					escritor.get(30, TimeUnit.SECONDS);
+				}
+				escrevendo.set(false);
+				for (Future<?> tarefa : tarefas) {
+					tarefa.get(30, TimeUnit.SECONDS);
+				}
+				Double noBanco = repositorio.findById(id).get().getIncome();
+				Assertions.assertEquals(noBanco, servico.findById(id).getIncome());
+			}
+		} finally {
+			executor.shutdownNow();
+			servico.delete(id);
+		}
+	}
+
+	/**
+	 * Cenário de Teste: outra transação segura o lock da linha (select ... for update).
+	 * Resultado:
+	 * 		- o update desiste depois de client.update.lock-retries tentativas e responde com ConflictException
+	 * 		- liberado o lock, o mesmo update grava normalmente
+	 */
+	@Test
+	public void testarLinhaTravadaRespondeConflitoDepoisDasTentativas() throws Exception {
+		ClientDTO inserido = servico.insert(
+				new ClientDTO(null, "Cliente Travado", "99900011133", 1000.0, Instant.parse("1990-01-01T00:00:00Z"), 0));
+		Long id = inserido.getId();
+		ClientDTO valores = new ClientDTO(id, "Cliente Travado", "99900011133", 2000.0, Instant.parse("1990-01-01T00:00:00Z"), 0);
+		CountDownLatch travada = new CountDownLatch(1);
+		CountDownLatch liberar = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> trava = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+				jdbc.queryForList("SELECT id FROM tb_client WHERE id = ? FOR UPDATE", id);
+				travada.countDown();
+				try {
+					liberar.await(30, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			travada.await(30, TimeUnit.SECONDS);
+			Assertions.assertThrows(ConflictException.class, () -> servico.update(id, valores));
+			liberar.countDown();
+			trava.get(30, TimeUnit.SECONDS);
+			Assertions.assertEquals(1L, servico.update(id, valores).getVersion());
+		} finally {
+			liberar.countDown();
+			executor.shutdown();
+			servico.delete(id);
+		}
+	}
+
+	/*
+	 * O ClientService trava a linha antes do UPDATE, então escritas sem versão só falham (409) se o
+	 * lock não vier depois de client.update.lock-retries tentativas; nesse caso o teste tenta de novo,
+	 * com limite.
+	 */
+	private void atualizar(Long id, ClientDTO dto) {
+		for (int tentativa = 0; tentativa < 50; tentativa++) {
+			try {
+				servico.update(id, dto);
+				return;
+			} catch (ConflictException e) {
+				// outra escrita venceu: tenta de novo
+			}
+		}
+		Assertions.fail("update did not succeed after 50 attempts");
+	}
+}
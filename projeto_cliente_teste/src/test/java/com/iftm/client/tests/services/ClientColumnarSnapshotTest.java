@@ -0,0 +1,132 @@
+package com.iftm.client.tests.services;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.services.ClientChangedEvent;
+import com.iftm.client.services.analytics.ClientColumnarSnapshot;
+
+public class ClientColumnarSnapshotTest {
+
+	private ClientColumnarSnapshot snapshot;
+
+	@BeforeEach
+	public void setup() {
+		snapshot = new ClientColumnarSnapshot(true, null, null);
+		snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(1L, "Conceição Evaristo", "10619244881", 1500.0, 2)));
+		snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(4L, "Carolina Maria de Jesus", "10419244771", 7500.0, 0)));
+		snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(5L, "Gilberto Gil", "10419344882", 2500.0, 4)));
+		snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(6L, "Djamila Ribeiro", "10619244884", null, null)));
+	}
+
+	/**
+	 * Cenário de Teste: income maior que o valor, ordenado e paginado; income nulo fica de fora.
+	 */
+	@Test
+	public void testarIncomeMaiorQueOrdenadoEPaginado() {
+		Page<ClientDTO> pagina = snapshot.findByIncomeGreaterThan(2000.0, PageRequest.of(0, 1, Direction.DESC, "income"));
+		Assertions.assertEquals(2, pagina.getTotalElements());
+		Assertions.assertEquals(4L, pagina.getContent().get(0).getId());
+
+		pagina = snapshot.findByIncomeGreaterThan(0.0, PageRequest.of(0, 10, Direction.ASC, "name"));
+		Assertions.assertArrayEquals(new long[] { 4L, 1L, 5L }, ids(pagina));
+	}
+
+	/**
+	 * Cenário de Teste: filtros combinados por bitmap (faixa de children e prefixo de cpf).
+	 */
+	@Test
+	public void testarFiltrosCombinados() {
+		ClientFilterDTO filtro = new ClientFilterDTO();
+		filtro.setCpfPrefix("104");
+		filtro.setMinChildren(1);
+		Assertions.assertArrayEquals(new long[] { 5L }, ids(snapshot.search(filtro, PageRequest.of(0, 10))));
+
+		filtro = new ClientFilterDTO();
+		filtro.setNamePrefix("D");
+		Assertions.assertArrayEquals(new long[] { 6L }, ids(snapshot.search(filtro, PageRequest.of(0, 10))));
+		Assertions.assertNull(snapshot.search(filtro, PageRequest.of(0, 10)).getContent().get(0).getIncome());
+	}
+
+	/**
+	 * Cenário de Teste: resumo e histograma de income seguem as mesmas regras do repositório.
+	 */
+	@Test
+	public void testarResumoEHistograma() {
+		IncomeStatsDTO stats = snapshot.incomeSummary(-Double.MAX_VALUE);
+		Assertions.assertEquals(3, stats.getCount());
+		Assertions.assertEquals(11500.0, stats.getSum());
+		Assertions.assertEquals(1500.0, stats.getMin());
+		Assertions.assertEquals(7500.0, stats.getMax());
+		Assertions.assertArrayEquals(new long[] { 2, 0, 1 }, snapshot.incomeHistogram(-Double.MAX_VALUE, 1500.0, 2000.0, 3));
+		Assertions.assertEquals(0, snapshot.incomeSummary(10000.0).getCount());
+	}
+
+	/**
+	 * Cenário de Teste: atualização e exclusão mudam as colunas, inclusive depois da compactação.
+	 */
+	@Test
+	public void testarAtualizacaoExclusaoECompactacao() {
+		ClientDTO atualizado = cliente(1L, "Conceição Evaristo", "10619244881", 9000.0, 2);
+		atualizado.setVersion(1L);
+		snapshot.onClientChanged(ClientChangedEvent.updated(atualizado));
+		snapshot.onClientChanged(ClientChangedEvent.deleted(4L));
+		snapshot.onClientChanged(ClientChangedEvent.incomeUpdated(5L, 3000.0));
+		Assertions.assertEquals(1L, snapshot.findByIncomeGreaterThan(2900.0, PageRequest.of(0, 10, Direction.ASC, "income"))
+				.getContent().get(0).getVersion());
+		Assertions.assertArrayEquals(new long[] { 1L, 5L }, ids(snapshot.findByIncomeGreaterThan(2000.0, PageRequest.of(0, 10))));
+
+		for (long id = 100; id < 1200; id++) {
+			snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(id, "Cliente " + id, String.format("2%010d", id), 100.0, 1)));
+		}
+		for (long id = 100; id < 1200; id++) {
+			snapshot.onClientChanged(ClientChangedEvent.deleted(id));
+		}
+		Assertions.assertArrayEquals(new long[] { 1L, 5L }, ids(snapshot.findByIncomeGreaterThan(2000.0, PageRequest.of(0, 10))));
+		ClientFilterDTO filtro = new ClientFilterDTO();
+		filtro.setNamePrefix("Cliente");
+		Assertions.assertEquals(0, snapshot.search(filtro, PageRequest.of(0, 10)).getTotalElements());
+	}
+
+	/**
+	 * Cenário de Teste: eventos fora de ordem e páginas depois da primeira.
+	 * Resultado:
+	 * 		- um UPDATED com versão menor ou igual à da linha é ignorado
+	 * 		- um evento atrasado não traz de volta um cliente excluído
+	 * 		- a segunda página por income desc continua de onde a primeira parou
+	 */
+	@Test
+	public void testarEventosForaDeOrdemEPaginacao() {
+		ClientDTO novo = cliente(5L, "Gilberto Gil", "10419344882", 9000.0, 4);
+		novo.setVersion(2L);
+		snapshot.onClientChanged(ClientChangedEvent.updated(novo));
+		ClientDTO velho = cliente(5L, "Gilberto Gil", "10419344882", 100.0, 4);
+		velho.setVersion(1L);
+		snapshot.onClientChanged(ClientChangedEvent.updated(velho));
+		Assertions.assertEquals(9000.0, snapshot.findByIncomeGreaterThan(8000.0, PageRequest.of(0, 10)).getContent().get(0).getIncome());
+
+		snapshot.onClientChanged(ClientChangedEvent.deleted(1L));
+		snapshot.onClientChanged(ClientChangedEvent.inserted(cliente(1L, "Conceição Evaristo", "10619244881", 1500.0, 2)));
+		Page<ClientDTO> pagina = snapshot.findByIncomeGreaterThan(0.0, PageRequest.of(1, 1, Direction.DESC, "income"));
+		Assertions.assertEquals(2, pagina.getTotalElements());
+		Assertions.assertArrayEquals(new long[] { 4L }, ids(pagina));
+		Assertions.assertEquals(0, snapshot.findByIncomeGreaterThan(0.0, PageRequest.of(2, 1)).getNumberOfElements());
+	}
+
+	private static long[] ids(Page<ClientDTO> pagina) {
+		return pagina.getContent().stream().mapToLong(ClientDTO::getId).toArray();
+	}
+
+	private static ClientDTO cliente(Long id, String nome, String cpf, Double income, Integer children) {
+		return new ClientDTO(id, nome, cpf, income, Instant.parse("1990-01-01T00:00:00Z"), children, 0L);
+	}
+}
@@ -0,0 +1,118 @@
+package com.iftm.client.tests.services;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.JobDTO;
+import com.iftm.client.dto.JobRequestDTO;
+import com.iftm.client.dto.PurgeResultDTO;
+import com.iftm.client.services.ChunkListener;
+import com.iftm.client.services.ClientJobService;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.exceptions.BadRequestException;
+import com.iftm.client.services.exceptions.TooManyRequestsException;
+
+public class ClientJobServiceTest {
+
+	private ClientService servico;
+	private ClientJobService jobs;
+	private CountDownLatch iniciou;
+
+	/*
+	 * Uma thread, fila de 1 job e importações de até 2 clientes. O purge simulado roda até ser cancelado.
+	 */
+	@BeforeEach
+	public void setup() {
+		servico = Mockito.mock(ClientService.class);
+		iniciou = new CountDownLatch(1);
+		Mockito.when(servico.countByIncomeGreaterThanApproximate(ArgumentMatchers.anyDouble())).thenReturn(5L);
+		Mockito.when(servico.purgeByIncomeGreaterThan(ArgumentMatchers.anyDouble(), ArgumentMatchers.any(ChunkListener.class)))
+				.thenAnswer(invocation -> {
+					ChunkListener listener = invocation.getArgument(1);
+					listener.chunkDone(2);
+					iniciou.countDown();
+					long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+					while (!listener.isCancelled() && System.nanoTime() < limite) {
+						Thread.sleep(5);
+					}
+					return new PurgeResultDTO(2, 1, 0);
+				});
+		jobs = new ClientJobService(servico, 1, 1, Duration.ofHours(1), 2);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		jobs.shutdown();
+	}
+
+	/**
+	 * Cenário de Teste: com a thread ocupada e a fila cheia, um novo job é recusado;
+	 * o job da fila é cancelado na hora e o job em execução para no próximo bloco.
+	 */
+	@Test
+	public void testarFilaCheiaRecusaJobECancelamentoParaOsJobs() throws Exception {
+		JobRequestDTO purge = new JobRequestDTO(JobDTO.Type.PURGE, 1000.0, null);
+		JobDTO rodando = jobs.submit(purge);
+		Assertions.assertTrue(iniciou.await(5, TimeUnit.SECONDS));
+		JobDTO naFila = jobs.submit(purge);
+
+		Assertions.assertThrows(TooManyRequestsException.class, () -> jobs.submit(purge));
+
+		JobDTO andamento = jobs.findById(rodando.getId());
+		Assertions.assertEquals(JobDTO.Status.RUNNING, andamento.getStatus());
+		Assertions.assertEquals(5L, andamento.getTotal());
+		Assertions.assertEquals(2L, andamento.getProcessed());
+
+		Assertions.assertEquals(JobDTO.Status.CANCELLED, jobs.cancel(naFila.getId()).getStatus());
+		jobs.cancel(rodando.getId());
+		JobDTO fim = aguardarFim(rodando.getId());
+		Assertions.assertEquals(JobDTO.Status.CANCELLED, fim.getStatus());
+		Mockito.verify(servico, Mockito.times(1)).purgeByIncomeGreaterThan(ArgumentMatchers.anyDouble(), ArgumentMatchers.any(ChunkListener.class));
+	}
+
+	/**
+	 * Cenário de Teste: um Error na importação deixa o job em FAILED, e não preso em RUNNING.
+	 */
+	@Test
+	public void testarErroNaoDeixaJobRodandoParaSempre() throws Exception {
+		Mockito.when(servico.insertBatch(ArgumentMatchers.any(), ArgumentMatchers.any(ChunkListener.class)))
+				.thenThrow(new OutOfMemoryError("Simulado"));
+		JobDTO job = jobs.submit(new JobRequestDTO(JobDTO.Type.IMPORT, null, Collections.singletonList(new ClientDTO())));
+
+		JobDTO fim = aguardarFim(job.getId());
+		Assertions.assertEquals(JobDTO.Status.FAILED, fim.getStatus());
+		Assertions.assertEquals("Simulado", fim.getError());
+	}
+
+	/**
+	 * Cenário de Teste: uma importação acima de client.jobs.max-clients é recusada antes de entrar na fila.
+	 */
+	@Test
+	public void testarImportacaoAcimaDoLimiteERecusada() {
+		JobRequestDTO grande = new JobRequestDTO(JobDTO.Type.IMPORT, null, Collections.nCopies(3, new ClientDTO()));
+
+		Assertions.assertThrows(BadRequestException.class, () -> jobs.submit(grande));
+		Mockito.verifyNoInteractions(servico);
+	}
+
+	private JobDTO aguardarFim(String id) throws InterruptedException {
+		for (int i = 0; i < 500; i++) {
+			JobDTO job = jobs.findById(id);
+			if (job.getFinishedAt() != null) {
+				return job;
+			}
+			Thread.sleep(10);
+		}
+		return Assertions.fail("Job não terminou");
+	}
+}
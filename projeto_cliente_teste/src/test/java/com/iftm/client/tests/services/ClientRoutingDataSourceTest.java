@@ -0,0 +1,145 @@
+package com.iftm.client.tests.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.iftm.client.config.ReplicaLagGuard;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientService;
+
+/**
+ * Réplicas de leitura com dois H2 locais fazendo papel de réplica. Cada réplica tem um único
+ * cliente marcador, que não existe no primário, então o resultado mostra quem atendeu a leitura.
+ * O query cache fica desligado: a mesma consulta repetida precisa ir ao banco para mostrar a réplica.
+ */
+@SpringBootTest(properties = {
+		"client.datasource.routing.enabled=true",
+		"client.datasource.replicas=jdbc:h2:mem:replicaA,jdbc:h2:mem:replicaB",
+		"client.datasource.replica-selection=round-robin",
+		"client.datasource.replica-lag=PT10S",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false" })
+@AutoConfigureMockMvc
+public class ClientRoutingDataSourceTest {
+
+	private static final double INCOME = 800000000.0;
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeAll
+	public static void criarReplicas() throws SQLException {
+		criarReplica("replicaA", "Replica A");
+		criarReplica("replicaB", "Replica B");
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- leituras alternam entre as réplicas (round-robin)
+	 * 		- depois de um insert, as leituras vão ao primário durante o replica-lag e veem o cliente inserido
+	 */
+	@Test
+	public void testarLeiturasVaoParaReplicasEEscritasParaPrimario() {
+		String primeira = lerNomes().get(0);
+		String segunda = lerNomes().get(0);
+		Assertions.assertTrue(primeira.startsWith("Replica"));
+		Assertions.assertTrue(segunda.startsWith("Replica"));
+		Assertions.assertNotEquals(primeira, segunda);
+		Assertions.assertEquals(primeira, lerNomes().get(0));
+
+		ClientDTO novo = servico.insert(new ClientDTO(null, "Primario", "99900000001", INCOME + 1,
+				Instant.parse("1990-01-01T00:00:00Z"), 0, null));
+		try {
+			Assertions.assertEquals(List.of("Primario"), lerNomes());
+			Assertions.assertEquals("Primario", servico.findById(novo.getId()).getName());
+		} finally {
+			servico.delete(novo.getId());
+		}
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Entrada:
+	 * 		- POST de um cliente novo
+	 * Resultado:
+	 * 		- leituras de outras threads (inclusive do cliente 1, que não foi alterado) continuam nas réplicas
+	 * 		- só a requisição que devolve o X-Client-Write-Token da escrita lê do primário
+	 */
+	@Test
+	public void testarSoQuemEscreveuLeDoPrimario() throws Exception {
+		ClientDTO dto = new ClientDTO(null, "Primario", "99900000002", INCOME + 2, Instant.parse("1990-01-01T00:00:00Z"), 0, null);
+		MvcResult criado = mockMvc.perform(MockMvcRequestBuilders.post("/clients")
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(dto))).andReturn();
+		String token = criado.getResponse().getHeader(ReplicaLagGuard.WRITE_TOKEN_HEADER);
+		long id = objectMapper.readTree(criado.getResponse().getContentAsString()).get("id").asLong();
+		try {
+			Assertions.assertNotNull(token);
+			Assertions.assertTrue(CompletableFuture.supplyAsync(this::lerNomes).join().get(0).startsWith("Replica"));
+			Assertions.assertTrue(CompletableFuture.supplyAsync(() -> servico.findById(1L).getName()).join()
+					.startsWith("Replica"));
+
+			Assertions.assertTrue(lerNomesPorHttp(null).get(0).startsWith("Replica"));
+			Assertions.assertEquals(List.of("Primario"), lerNomesPorHttp(token));
+		} finally {
+			mockMvc.perform(MockMvcRequestBuilders.delete("/clients/{id}", id));
+		}
+	}
+
+	private List<String> lerNomesPorHttp(String token) throws Exception {
+		MockHttpServletRequestBuilder get = MockMvcRequestBuilders.get("/clients/incomeGreaterThan/")
+				.param("income", String.valueOf(INCOME)).param("orderBy", "id");
+		if (token != null) {
+			get.header(ReplicaLagGuard.WRITE_TOKEN_HEADER, token);
+		}
+		JsonNode pagina = objectMapper.readTree(mockMvc.perform(get).andReturn().getResponse().getContentAsString());
+		List<String> nomes = new ArrayList<>();
+		pagina.get("content").forEach(cliente -> nomes.add(cliente.get("name").asText()));
+		return nomes;
+	}
+
+	private List<String> lerNomes() {
+		PageRequest pageRequest = PageRequest.of(0, 10, Direction.ASC, "id");
+		return servico.findByIncomeGreaterThan(pageRequest, INCOME).stream()
+				.map(ClientDTO::getName)
+				.collect(Collectors.toList());
+	}
+
+	// DB_CLOSE_DELAY=-1 mantém o banco em memória depois que esta conexão fecha
+	private static void criarReplica(String banco, String nome) throws SQLException {
+		try (Connection conexao = DriverManager.getConnection("jdbc:h2:mem:" + banco + ";DB_CLOSE_DELAY=-1", "sa", "");
+				Statement comando = conexao.createStatement()) {
+			comando.execute("CREATE TABLE tb_client (id BIGINT PRIMARY KEY, name VARCHAR(255), cpf VARCHAR(255), "
+					+ "income DOUBLE, birth_date TIMESTAMP, children INTEGER, version BIGINT)");
+			comando.execute("INSERT INTO tb_client VALUES (1, '" + nome + "', '000', " + (INCOME + 1) + ", NULL, 0, 0)");
+		}
+	}
+}
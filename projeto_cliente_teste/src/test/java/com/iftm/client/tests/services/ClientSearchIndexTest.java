@@ -0,0 +1,83 @@
+package com.iftm.client.tests.services;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientChangedEvent;
+import com.iftm.client.services.search.ClientSearchIndex;
+
+public class ClientSearchIndexTest {
+
+	private ClientSearchIndex indice;
+
+	@BeforeEach
+	public void setup() {
+		indice = new ClientSearchIndex(true, false, null, null);
+		indice.onClientChanged(ClientChangedEvent.inserted(cliente(1L, "Conceição Evaristo", "10619244881")));
+		indice.onClientChanged(ClientChangedEvent.inserted(cliente(4L, "Carolina Maria de Jesus", "10419244771")));
+		indice.onClientChanged(ClientChangedEvent.inserted(cliente(5L, "Gilberto Gil", "10419344882")));
+	}
+
+	/**
+	 * Cenário de Teste: prefixo e trecho de cpf retornam os ids ordenados.
+	 */
+	@Test
+	public void testarBuscaPorPrefixoETrechoDeCpf() {
+		Assertions.assertArrayEquals(new long[] { 4L, 5L }, indice.cpfStartingWith("104"));
+		Assertions.assertArrayEquals(new long[] { 4L }, indice.cpfContaining("447"));
+		Assertions.assertArrayEquals(new long[] { 1L, 4L, 5L }, indice.cpfContaining("19"));
+		Assertions.assertArrayEquals(new long[0], indice.cpfContaining("999"));
+	}
+
+	/**
+	 * Cenário de Teste: busca por nome ignora maiúsculas e acentos.
+	 */
+	@Test
+	public void testarBuscaPorNomeIgnoraMaiusculasEAcentos() {
+		Assertions.assertArrayEquals(new long[] { 1L }, indice.nameStartingWith("conceicao"));
+		Assertions.assertArrayEquals(new long[] { 4L }, indice.nameContaining("MARIA"));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.nameContaining("gil"));
+	}
+
+	/**
+	 * Cenário de Teste: atualização troca o valor indexado e exclusão remove o id.
+	 */
+	@Test
+	public void testarAtualizacaoEExclusaoMantemIndiceAtual() {
+		indice.onClientChanged(ClientChangedEvent.updated(cliente(5L, "Gilberto Passos Gil", "20000000000")));
+		Assertions.assertArrayEquals(new long[] { 4L }, indice.cpfStartingWith("104"));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.cpfStartingWith("2"));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.nameContaining("passos"));
+
+		indice.onClientChanged(ClientChangedEvent.deleted(4L));
+		Assertions.assertArrayEquals(new long[0], indice.cpfStartingWith("104"));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.nameContaining("gi"));
+		Assertions.assertArrayEquals(new long[] { 1L, 5L }, indice.sort(new long[] { 5L, 1L }, "name", true, 2));
+		Assertions.assertArrayEquals(new long[] { 5L, 1L }, indice.sort(new long[] { 1L, 5L }, "name", false, 2));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.sort(new long[] { 1L, 5L }, "id", false, 1));
+	}
+
+	/**
+	 * Cenário de Teste: evento com versão antiga chegando depois de um mais novo é ignorado, e um
+	 * evento atrasado não traz de volta um cliente excluído.
+	 */
+	@Test
+	public void testarEventosForaDeOrdemNaoSobrescrevemVersaoMaisNova() {
+		indice.onClientChanged(ClientChangedEvent.updated(new ClientDTO(5L, "Gil", "30000000000", 1000.0, null, 0, 2L)));
+		indice.onClientChanged(ClientChangedEvent.updated(new ClientDTO(5L, "Gilberto", "20000000000", 1000.0, null, 0, 1L)));
+		Assertions.assertArrayEquals(new long[] { 5L }, indice.cpfStartingWith("3"));
+		Assertions.assertArrayEquals(new long[0], indice.cpfStartingWith("2"));
+
+		indice.onClientChanged(ClientChangedEvent.deleted(4L));
+		indice.onClientChanged(ClientChangedEvent.updated(new ClientDTO(4L, "Carolina", "10419244771", 1000.0, null, 0, 9L)));
+		Assertions.assertArrayEquals(new long[0], indice.nameContaining("carolina"));
+	}
+
+	private static ClientDTO cliente(Long id, String nome, String cpf) {
+		return new ClientDTO(id, nome, cpf, 1000.0, Instant.parse("1990-01-01T00:00:00Z"), 0);
+	}
+}
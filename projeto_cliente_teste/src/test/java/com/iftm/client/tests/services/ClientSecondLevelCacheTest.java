@@ -0,0 +1,125 @@
+package com.iftm.client.tests.services;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.iftm.client.config.SqlStatementsConfig;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.IncomeChangeDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientChangedEvent;
+import com.iftm.client.services.ClientInvalidationChannel;
+import com.iftm.client.services.ClientService;
+
+/**
+ * Cache de segundo nível e canal de invalidação. A "outra instância" é um segundo
+ * ClientInvalidationChannel no mesmo grupo multicast, pela interface de loopback.
+ */
+@SpringBootTest(properties = {
+		"client.invalidation.enabled=true",
+		"client.invalidation.group=239.255.42.99",
+		"client.invalidation.port=45599",
+		"client.invalidation.interface=lo" })
+public class ClientSecondLevelCacheTest {
+
+	private static final double INCOME = 650000000.0;
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private ClientRepository repositorio;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private ClientInvalidationChannel canal;
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- findById e a consulta por income repetidos não vão ao banco
+	 * 		- depois de um UPDATE em lote por JDBC, os dois voltam ao banco e veem o novo income
+	 */
+	@Test
+	public void testarEntidadeEConsultaEmCacheInvalidadasPorEscritaJdbc() {
+		ClientDTO novo = servico.insert(novo("66600000001", INCOME));
+		try {
+			PageRequest pageRequest = PageRequest.of(0, 10);
+			Assertions.assertEquals(INCOME, repositorio.findById(novo.getId()).get().getIncome());
+			Assertions.assertEquals(1, repositorio.findDtoByIncome(INCOME, pageRequest).getTotalElements());
+
+			long antes = SqlStatementsConfig.statements();
+			Assertions.assertEquals(INCOME, repositorio.findById(novo.getId()).get().getIncome());
+			Assertions.assertEquals(1, repositorio.findDtoByIncome(INCOME, pageRequest).getTotalElements());
+			Assertions.assertEquals(antes, SqlStatementsConfig.statements());
+
+			servico.updateIncomes(List.of(new IncomeChangeDTO(novo.getId(), INCOME + 1)));
+			Assertions.assertFalse(emf.getCache().contains(Client.class, novo.getId()));
+			Assertions.assertEquals(INCOME + 1, repositorio.findById(novo.getId()).get().getIncome());
+			Assertions.assertTrue(repositorio.findDtoByIncome(INCOME, pageRequest).isEmpty());
+		} finally {
+			servico.delete(novo.getId());
+		}
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- uma escrita de outra instância (feita direto no banco) só aparece depois da mensagem dela,
+	 * 		  também no índice de busca
+	 * 		- o canal entrega a mensagem a todos os listeners (o ClientCacheInvalidator e o do teste,
+	 * 		  chamado depois dele)
+	 * 		- uma escrita desta instância é enviada às outras
+	 */
+	@Test
+	public void testarInvalidacaoEntreInstancias() throws InterruptedException {
+		ClientDTO novo = servico.insert(novo("66600000002", INCOME + 2));
+		try (ClientInvalidationChannel outraInstancia = new ClientInvalidationChannel("239.255.42.99", 45599, "lo")) {
+			BlockingQueue<ClientInvalidationChannel.Message> recebidas = new LinkedBlockingQueue<>();
+			outraInstancia.onMessage(recebidas::add);
+			BlockingQueue<ClientInvalidationChannel.Message> recebidasAqui = new LinkedBlockingQueue<>();
+			canal.onMessage(recebidasAqui::add);
+
+			Assertions.assertEquals("Cache", repositorio.findById(novo.getId()).get().getName());
+			jdbc.update("UPDATE tb_client SET name = 'Outra instancia', version = version + 1 WHERE id = ?", novo.getId());
+			Assertions.assertEquals("Cache", repositorio.findById(novo.getId()).get().getName());
+
+			outraInstancia.publish(ClientChangedEvent.Type.UPDATED, novo.getId());
+			Assertions.assertNotNull(recebidasAqui.poll(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("Outra instancia", repositorio.findById(novo.getId()).get().getName());
+			Assertions.assertEquals("Outra instancia", servico.findById(novo.getId()).getName());
+			Assertions.assertEquals(List.of(novo.getId()), servico.searchByName(PageRequest.of(0, 10),
+					"Outra instancia", true).map(ClientDTO::getId).getContent());
+
+			servico.delete(novo.getId());
+			ClientInvalidationChannel.Message recebida = recebidas.poll(5, TimeUnit.SECONDS);
+			Assertions.assertNotNull(recebida);
+			Assertions.assertEquals(ClientChangedEvent.Type.DELETED, recebida.getType());
+			Assertions.assertEquals(novo.getId(), recebida.getId());
+		} finally {
+			jdbc.update("DELETE FROM tb_client WHERE id = ?", novo.getId());
+		}
+	}
+
+	private static ClientDTO novo(String cpf, double income) {
+		return new ClientDTO(null, "Cache", cpf, income, Instant.parse("1990-01-01T00:00:00Z"), 0, null);
+	}
+}
@@ -0,0 +1,95 @@
+package com.iftm.client.tests.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.iftm.client.dto.BatchResultDTO;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.repositories.sharding.ShardedClientRepository;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.exceptions.DatabaseException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+
+/**
+ * Clientes particionados por faixa de id (2 ids por shard) em três H2 locais: o cpf
+ * continua único entre os shards.
+ */
+@SpringBootTest(properties = {
+		"client.sharding.enabled=true",
+		"client.sharding.urls=jdbc:h2:mem:range0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:range1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:range2;DB_CLOSE_DELAY=-1",
+		"client.sharding.strategy=id-range",
+		"client.sharding.id-range-size=2" })
+public class ClientShardingIdRangeTest {
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private ShardedClientRepository shards;
+
+	private final List<Long> criados = new ArrayList<>();
+
+	@AfterEach
+	public void removerCriados() {
+		for (Long id : criados) {
+			try {
+				servico.delete(id);
+			} catch (ResourceNotFoundException e) {
+				// já removido pelo teste
+			}
+		}
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Entrada:
+	 * 		- clientes gravados em shards diferentes
+	 * Resultado:
+	 * 		- insert, update e lote com um cpf já usado em outro shard são recusados
+	 * 		- um cpf trocado ou removido fica livre de novo e findByCpf acompanha
+	 */
+	@Test
+	public void testarCpfUnicoEntreShards() {
+		ClientDTO primeiro = criar(novo("66600000001"));
+		ClientDTO segundo = criar(novo("66600000002"));
+		ClientDTO terceiro = criar(novo("66600000003"));
+		Assertions.assertTrue(List.of(primeiro, segundo, terceiro).stream().map(dto -> shards.shardOfId(dto.getId()))
+				.distinct().count() > 1);
+
+		Assertions.assertThrows(DatabaseException.class, () -> servico.insert(novo("66600000001")));
+
+		Assertions.assertThrows(DatabaseException.class, () -> servico.update(terceiro.getId(), novo("66600000001")));
+		Assertions.assertEquals("66600000003", servico.findById(terceiro.getId()).getCpf());
+
+		servico.update(terceiro.getId(), novo("66600000004"));
+		Assertions.assertEquals(terceiro.getId(), servico.findByCpf("66600000004").getId());
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findByCpf("66600000003"));
+
+		List<BatchResultDTO> lote = servico.insertBatch(Arrays.asList(novo("66600000003"), novo("66600000002")).iterator());
+		Assertions.assertEquals(BatchResultDTO.Status.CREATED, lote.get(0).getStatus());
+		criados.add(lote.get(0).getId());
+		Assertions.assertEquals("Integrity violation", lote.get(1).getMessage());
+
+		servico.delete(primeiro.getId());
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findByCpf("66600000001"));
+		criar(novo("66600000001"));
+	}
+
+	private ClientDTO criar(ClientDTO dto) {
+		ClientDTO novo = servico.insert(dto);
+		criados.add(novo.getId());
+		return novo;
+	}
+
+	private static ClientDTO novo(String cpf) {
+		return new ClientDTO(null, "Faixa " + cpf, cpf, 5000.0, Instant.parse("1990-01-01T00:00:00Z"), 0, null);
+	}
+}
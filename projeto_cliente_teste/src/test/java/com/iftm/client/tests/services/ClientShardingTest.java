@@ -0,0 +1,269 @@
+package com.iftm.client.tests.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.iftm.client.config.SqlStatementsConfig;
+import com.iftm.client.dto.BatchResultDTO;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.ClientFilterDTO;
+import com.iftm.client.dto.CursorPageDTO;
+import com.iftm.client.dto.IncomeChangeDTO;
+import com.iftm.client.dto.IncomeStatsDTO;
+import com.iftm.client.entities.Client;
+import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.repositories.sharding.ShardedClientRepository;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.exceptions.BadRequestException;
+import com.iftm.client.services.exceptions.ConflictException;
+import com.iftm.client.services.exceptions.ResourceNotFoundException;
+import com.iftm.client.services.search.ClientSearchIndex;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Clientes particionados por hash do cpf em três H2 locais. O banco principal (testdb)
+ * não recebe nenhum desses clientes.
+ */
+@SpringBootTest(properties = {
+		"client.sharding.enabled=true",
+		"client.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+		"client.sharding.strategy=hash-cpf" })
+public class ClientShardingTest {
+
+	private static final double INCOME = 700000000.0;
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private ShardedClientRepository shards;
+
+	@Autowired
+	private ClientRepository repository;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Autowired
+	private ClientSearchIndex searchIndex;
+
+	@Autowired
+	private DataSourceProperties dataSource;
+
+	private final List<Long> criados = new ArrayList<>();
+
+	@AfterEach
+	public void removerCriados() {
+		for (Long id : criados) {
+			try {
+				servico.delete(id);
+			} catch (ResourceNotFoundException e) {
+				// já removido pelo teste
+			}
+		}
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Entrada:
+	 * 		- 9 clientes com income acima de 700000000
+	 * Resultado:
+	 * 		- cada cliente fica no shard do seu cpf e é achado por id e por cpf
+	 * 		- as páginas juntam os shards, ordenadas por income, com o total somado
+	 * 		- os comandos feitos nas threads do scatter-gather contam para quem chamou
+	 */
+	@Test
+	public void testarConsultasPontuaisEPaginasEntreShards() {
+		for (int i = 1; i <= 9; i++) {
+			ClientDTO novo = servico.insert(novo(i));
+			criados.add(novo.getId());
+			String cpf = novo.getCpf();
+			Assertions.assertEquals(shards.shardOfCpf(cpf), shards.shardOfId(novo.getId()));
+			Assertions.assertEquals(cpf, servico.findById(novo.getId()).getCpf());
+			Assertions.assertEquals(novo.getId(), shards.findByCpf(cpf).get().getId());
+		}
+		Assertions.assertTrue(criados.stream().map(shards::shardOfId).distinct().count() > 1);
+
+		PageRequest primeira = PageRequest.of(0, 4, Direction.DESC, "income");
+		Page<ClientDTO> pagina = servico.findByIncomeGreaterThan(primeira, INCOME);
+		Assertions.assertEquals(9, pagina.getTotalElements());
+		Assertions.assertEquals(List.of(INCOME + 9, INCOME + 8, INCOME + 7, INCOME + 6), incomes(pagina));
+
+		pagina = servico.findByIncomeGreaterThan(PageRequest.of(2, 4, Direction.DESC, "income"), INCOME);
+		Assertions.assertEquals(List.of(INCOME + 1), incomes(pagina));
+
+		Assertions.assertThrows(BadRequestException.class,
+				() -> servico.findAllPaged(PageRequest.of(0, 4, Direction.ASC, "senha")));
+
+		long comandosAntes = SqlStatementsConfig.statements();
+		servico.findAllPaged(PageRequest.of(0, 4));
+		Assertions.assertTrue(SqlStatementsConfig.statements() - comandosAntes >= shards.size());
+
+		Assertions.assertNotNull(registry.find("executor.queued").tag("name", "client.sharding").gauge());
+		Assertions.assertTrue(registry.find("executor.completed").tag("name", "client.sharding").functionCounter().count() > 0);
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- cada shard tem exatamente os índices declarados em Client
+	 * 		- o ClientSearchIndex não é montado (as buscas vão aos shards)
+	 */
+	@Test
+	public void testarEsquemaDosShardsEIndiceDeBusca() {
+		JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:shard1",
+				dataSource.determineUsername(), dataSource.determinePassword()));
+		List<String> indices = shard.queryForList("SELECT DISTINCT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES "
+				+ "WHERE TABLE_NAME = 'TB_CLIENT' AND PRIMARY_KEY = FALSE ORDER BY 1", String.class);
+		List<String> declarados = Arrays.stream(Client.class.getAnnotation(Table.class).indexes()).map(Index::name)
+				.sorted().collect(Collectors.toList());
+		Assertions.assertEquals(declarados, indices);
+
+		Assertions.assertFalse(searchIndex.isReady());
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- update incrementa a versão; versão antiga dá conflito
+	 * 		- mudar o cpf (e portanto o shard) é recusado
+	 * 		- delete remove do shard
+	 */
+	@Test
+	public void testarEscritasNoShard() {
+		ClientDTO novo = servico.insert(novo(20));
+		criados.add(novo.getId());
+
+		ClientDTO alterado = novo(20);
+		alterado.setName("Shard alterado");
+		alterado.setVersion(0L);
+		Assertions.assertEquals(1L, servico.update(novo.getId(), alterado).getVersion());
+		Assertions.assertEquals("Shard alterado", servico.findById(novo.getId()).getName());
+		Assertions.assertThrows(ConflictException.class, () -> servico.update(novo.getId(), alterado));
+
+		ClientDTO outroCpf = servico.findById(novo.getId());
+		String cpf = "88800000000";
+		for (int i = 0; shards.shardOfCpf(cpf) == shards.shardOfId(novo.getId()); i++) {
+			cpf = String.format("888%08d", i);
+		}
+		outroCpf.setCpf(cpf);
+		Assertions.assertThrows(BadRequestException.class, () -> servico.update(novo.getId(), outroCpf));
+
+		servico.delete(novo.getId());
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findById(novo.getId()));
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.delete(novo.getId()));
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Entrada:
+	 * 		- lote com 9 clientes (cpfs 77700000031 a 77700000039), um cpf repetido e uma linha nula
+	 * Resultado:
+	 * 		- buscas, slices, counts, fields, keyset, exportação e estatísticas respondem pelos shards
+	 * 		- alteração de income em lote e purge gravam nos shards; o banco principal não recebe nada
+	 */
+	@Test
+	public void testarBuscasLotesEPurgeEntreShards() {
+		List<ClientDTO> linhas = new ArrayList<>();
+		for (int i = 31; i <= 39; i++) {
+			linhas.add(novo(i));
+		}
+		linhas.add(novo(31));
+		linhas.add(null);
+		List<BatchResultDTO> lote = servico.insertBatch(linhas.iterator());
+		for (int i = 0; i < 9; i++) {
+			Assertions.assertEquals(BatchResultDTO.Status.CREATED, lote.get(i).getStatus());
+			criados.add(lote.get(i).getId());
+		}
+		Assertions.assertEquals("Integrity violation", lote.get(9).getMessage());
+		Assertions.assertEquals(BatchResultDTO.Status.FAILED, lote.get(10).getStatus());
+		Assertions.assertTrue(repository.findByCpf("77700000031").isEmpty());
+		Assertions.assertEquals(lote.get(0).getId(), servico.findByCpf("77700000031").getId());
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findByCpf("77700000030"));
+
+		PageRequest porIncome = PageRequest.of(0, 20, Direction.DESC, "income");
+		Assertions.assertEquals(List.of(INCOME + 33), incomes(servico.findByIncome(porIncome, INCOME + 33)));
+		Assertions.assertEquals(9, servico.findByCpfLike(porIncome, "7770000003%").getTotalElements());
+		Assertions.assertEquals(9, servico.searchByCpf(porIncome, "7770000003", true).getTotalElements());
+		Assertions.assertEquals(9, servico.searchByName(porIncome, "SHÁRD 3", true).getTotalElements());
+
+		ClientFilterDTO filtro = new ClientFilterDTO();
+		filtro.setMinIncome(INCOME + 35);
+		filtro.setCpfPrefix("7770000003");
+		Assertions.assertEquals(List.of(INCOME + 39, INCOME + 38, INCOME + 37, INCOME + 36, INCOME + 35),
+				incomes(servico.search(filtro, porIncome)));
+
+		Slice<ClientDTO> fatia = servico.findByIncomeGreaterThanSliced(PageRequest.of(0, 4, Direction.DESC, "income"), INCOME);
+		Assertions.assertEquals(List.of(INCOME + 39, INCOME + 38, INCOME + 37, INCOME + 36), fatia.map(ClientDTO::getIncome).getContent());
+		Assertions.assertTrue(fatia.hasNext());
+		fatia = servico.findByIncomeGreaterThanSliced(PageRequest.of(2, 4, Direction.DESC, "income"), INCOME);
+		Assertions.assertEquals(1, fatia.getNumberOfElements());
+		Assertions.assertFalse(fatia.hasNext());
+		Assertions.assertEquals(9, servico.countByIncomeGreaterThanApproximate(INCOME));
+
+		Page<Map<String, Object>> campos = servico.findAllPaged(PageRequest.of(0, 2, Direction.ASC, "cpf"), List.of("id", "cpf"));
+		Assertions.assertEquals(9, campos.getTotalElements());
+		Assertions.assertEquals(Map.of("id", lote.get(0).getId(), "cpf", "77700000031"), campos.getContent().get(0));
+
+		List<Double> porCursor = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPageDTO<ClientDTO> pagina = servico.findByIncomeGreaterThanSeek(INCOME, cursor, 4, Direction.DESC, "income");
+			pagina.getContent().forEach(dto -> porCursor.add(dto.getIncome()));
+			cursor = pagina.getNextCursor();
+		} while (cursor != null);
+		Assertions.assertEquals(incomes(servico.findByIncomeGreaterThan(porIncome, INCOME)), porCursor);
+
+		List<ClientDTO> exportados = new ArrayList<>();
+		servico.exportAll(exportados::add);
+		Assertions.assertEquals(9, exportados.size());
+
+		IncomeStatsDTO stats = servico.incomeStats(INCOME, 3);
+		Assertions.assertEquals(9, stats.getCount());
+		Assertions.assertEquals(INCOME + 31, stats.getMin());
+		Assertions.assertEquals(INCOME + 39, stats.getMax());
+		Assertions.assertEquals(9, stats.getHistogram().stream().mapToLong(IncomeStatsDTO.Bucket::getCount).sum());
+
+		List<BatchResultDTO> alterados = servico.updateIncomes(Arrays.asList(
+				new IncomeChangeDTO(lote.get(0).getId(), INCOME + 50), new IncomeChangeDTO(-1L, INCOME)));
+		Assertions.assertEquals(BatchResultDTO.Status.UPDATED, alterados.get(0).getStatus());
+		Assertions.assertEquals(BatchResultDTO.Status.FAILED, alterados.get(1).getStatus());
+		ClientDTO alterado = servico.findById(lote.get(0).getId());
+		Assertions.assertEquals(INCOME + 50, alterado.getIncome());
+		Assertions.assertEquals(1L, alterado.getVersion());
+
+		Assertions.assertEquals(9, servico.purgeByIncomeGreaterThan(INCOME).getDeleted());
+		Assertions.assertEquals(0, servico.countByIncomeGreaterThanApproximate(INCOME));
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> servico.findById(lote.get(0).getId()));
+	}
+
+	private static ClientDTO novo(int i) {
+		return new ClientDTO(null, "Shard " + i, String.format("777%08d", i), INCOME + i,
+				Instant.parse("1990-01-01T00:00:00Z"), 0, null);
+	}
+
+	private static List<Double> incomes(Page<ClientDTO> pagina) {
+		return pagina.getContent().stream().map(ClientDTO::getIncome).collect(Collectors.toList());
+	}
+}
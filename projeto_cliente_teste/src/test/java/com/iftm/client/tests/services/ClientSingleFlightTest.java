@@ -0,0 +1,91 @@
+package com.iftm.client.tests.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.PageRequest;
+
+import com.iftm.client.config.SingleFlight;
+import com.iftm.client.config.SingleFlightConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Aspecto de single-flight aplicado a um serviço de teste cuja consulta fica presa até o teste liberar,
+ * para que todas as chamadas simultâneas cheguem enquanto a primeira ainda roda.
+ */
+public class ClientSingleFlightTest {
+
+	public static class ConsultaLenta {
+
+		final AtomicInteger execucoes = new AtomicInteger();
+		final CountDownLatch liberar = new CountDownLatch(1);
+
+		@SingleFlight
+		public String buscar(PageRequest pageRequest, Double income) throws InterruptedException {
+			execucoes.incrementAndGet();
+			liberar.await();
+			return "page " + pageRequest.getPageNumber() + " income " + income;
+		}
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Entrada:
+	 * 		- 5 chamadas iguais e 1 com outra página, todas simultâneas
+	 * Resultado:
+	 * 		- as 5 iguais executam a consulta uma vez e recebem o mesmo resultado
+	 * 		- a outra página executa a sua própria consulta
+	 * 		- métrica client.single-flight: 2 executed e 4 collapsed
+	 */
+	@Test
+	public void testarChamadasIguaisDividemUmaExecucao() throws Exception {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		ConsultaLenta alvo = new ConsultaLenta();
+		AspectJProxyFactory factory = new AspectJProxyFactory(alvo);
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new SingleFlightConfig.SingleFlightAspect(registry));
+		ConsultaLenta servico = factory.getProxy();
+
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<String>> iguais = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				iguais.add(executor.submit(() -> servico.buscar(PageRequest.of(0, 12), 5000.0)));
+			}
+			Future<String> outraPagina = executor.submit(() -> servico.buscar(PageRequest.of(1, 12), 5000.0));
+			for (int i = 0; i < 50 && contar(registry, "collapsed") < 4; i++) {
+				Thread.sleep(100);
+			}
+			alvo.liberar.countDown();
+
+			for (Future<String> chamada : iguais) {
+				Assertions.assertEquals("page 0 income 5000.0", chamada.get());
+			}
+			Assertions.assertEquals("page 1 income 5000.0", outraPagina.get());
+			Assertions.assertEquals(2, alvo.execucoes.get());
+			Assertions.assertEquals(2, contar(registry, "executed"));
+			Assertions.assertEquals(4, contar(registry, "collapsed"));
+
+			// terminada a execução, nada fica guardado
+			Assertions.assertEquals("page 0 income 5000.0", servico.buscar(PageRequest.of(0, 12), 5000.0));
+			Assertions.assertEquals(3, alvo.execucoes.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static double contar(MeterRegistry registry, String result) {
+		return registry.find("client.single-flight").tag("result", result).counters().stream()
+				.mapToDouble(c -> c.count()).sum();
+	}
+}
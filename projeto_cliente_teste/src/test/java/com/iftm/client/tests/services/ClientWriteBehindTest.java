@@ -0,0 +1,200 @@
+package com.iftm.client.tests.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.services.ClientCacheInvalidator;
+import com.iftm.client.services.ClientService;
+import com.iftm.client.services.ClientWriteBehindBuffer;
+import com.iftm.client.services.exceptions.ConflictException;
+
+/**
+ * Write-behind com ack=none e flush só por tamanho (o intervalo é longo), para o teste controlar
+ * quando a gravação acontece. O ack=flush é testado com um buffer criado pelo próprio teste.
+ */
+@SpringBootTest(properties = {
+		"client.write-behind.enabled=true",
+		"client.write-behind.flush-interval=PT1H",
+		"client.write-behind.max-pending=3",
+		"client.write-behind.ack=none" })
+public class ClientWriteBehindTest {
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private ClientWriteBehindBuffer buffer;
+
+	@Autowired
+	private JdbcTemplate jdbc;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@Autowired
+	private ClientCacheInvalidator invalidator;
+
+	private final List<Long> criados = new ArrayList<>();
+
+	@AfterEach
+	public void removerCriados() {
+		buffer.flush();
+		criados.forEach(id -> jdbc.update("DELETE FROM tb_client WHERE id = ?", id));
+		criados.clear();
+	}
+
+	/**
+	 * Cenário de Teste
+	 * Resultado:
+	 * 		- três atualizações do mesmo id viram uma só, ainda não gravada, mas já vista por findById
+	 * 		- o flush grava o último valor com uma única troca de versão
+	 * 		- uma atualização com versão grava antes os pendentes
+	 */
+	@Test
+	public void testarAtualizacoesAgrupadasEVisiveisAntesDaGravacao() {
+		ClientDTO novo = criar("44400000001");
+		for (int i = 1; i <= 3; i++) {
+			ClientDTO resultado = servico.update(novo.getId(), valores(novo, 1000.0 * i));
+			Assertions.assertEquals(1L, resultado.getVersion());
+		}
+		Assertions.assertEquals(1, buffer.size());
+		Assertions.assertEquals(3000.0, servico.findById(novo.getId()).getIncome());
+		Assertions.assertEquals(500.0, renda(novo.getId()));
+
+		buffer.flush();
+		Assertions.assertEquals(0, buffer.size());
+		Assertions.assertEquals(3000.0, renda(novo.getId()));
+		Assertions.assertEquals(1L, versao(novo.getId()));
+		Assertions.assertEquals(3000.0, servico.findById(novo.getId()).getIncome());
+
+		servico.update(novo.getId(), valores(novo, 4000.0));
+		ClientDTO comVersao = valores(novo, 5000.0);
+		comVersao.setVersion(2L);
+		Assertions.assertEquals(3L, servico.update(novo.getId(), comVersao).getVersion());
+		Assertions.assertEquals(5000.0, renda(novo.getId()));
+	}
+
+	/**
+	 * Cenário de Teste: client.write-behind.max-pending=3
+	 * Resultado:
+	 * 		- o terceiro id pendente dispara a gravação sem esperar o intervalo
+	 */
+	@Test
+	public void testarGravacaoPorTamanhoDoBuffer() throws InterruptedException {
+		List<ClientDTO> novos = List.of(criar("44400000002"), criar("44400000003"), criar("44400000004"));
+		for (ClientDTO novo : novos) {
+			servico.update(novo.getId(), valores(novo, 7000.0));
+		}
+		for (int i = 0; i < 50 && buffer.size() > 0; i++) {
+			Thread.sleep(100);
+		}
+		for (ClientDTO novo : novos) {
+			Assertions.assertEquals(7000.0, renda(novo.getId()));
+		}
+	}
+
+	/**
+	 * Cenário de Teste: o ClientCache tem uma versão velha (outra instância gravou direto no banco)
+	 * Resultado:
+	 * 		- o buffer usa a versão do banco e a gravação não falha por conflito
+	 */
+	@Test
+	public void testarVersaoDoBufferVemDoBancoENaoDoCache() {
+		ClientDTO novo = criar("44400000007");
+		Assertions.assertEquals(0L, servico.findById(novo.getId()).getVersion());
+		jdbc.update("UPDATE tb_client SET version = version + 1 WHERE id = ?", novo.getId());
+
+		Assertions.assertEquals(2L, servico.update(novo.getId(), valores(novo, 8000.0)).getVersion());
+		buffer.flush();
+		Assertions.assertEquals(8000.0, renda(novo.getId()));
+		Assertions.assertEquals(2L, versao(novo.getId()));
+	}
+
+	/**
+	 * Cenário de Teste: ack=flush
+	 * Resultado:
+	 * 		- as chamadas esperam a gravação em lote e só retornam depois dela
+	 * 		- uma atualização sobre uma versão que mudou no banco falha com ConflictException
+	 */
+	@Test
+	public void testarAckSincronoEConflito() throws Exception {
+		ClientWriteBehindBuffer sincrono = new ClientWriteBehindBuffer(jdbc, transactionManager, publisher, invalidator,
+				Duration.ofHours(1), 1000, "flush");
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<ClientDTO> novos = List.of(criar("44400000005"), criar("44400000006"));
+			List<Future<ClientDTO>> chamadas = new ArrayList<>();
+			CountDownLatch iniciadas = new CountDownLatch(8);
+			for (int i = 0; i < 8; i++) {
+				ClientDTO novo = novos.get(i % 2);
+				chamadas.add(executor.submit(() -> {
+					iniciadas.countDown();
+					return sincrono.submit(novo, valores(novo, 9000.0));
+				}));
+			}
+			iniciadas.await();
+			Thread.sleep(200);
+			for (Future<ClientDTO> chamada : chamadas) {
+				Assertions.assertFalse(chamada.isDone());
+			}
+			sincrono.flush();
+			for (Future<ClientDTO> chamada : chamadas) {
+				Assertions.assertEquals(1L, chamada.get().getVersion());
+			}
+			for (ClientDTO novo : novos) {
+				Assertions.assertEquals(9000.0, renda(novo.getId()));
+				Assertions.assertEquals(1L, versao(novo.getId()));
+			}
+
+			ClientDTO velho = novos.get(0);
+			Future<ClientDTO> conflito = executor.submit(() -> sincrono.submit(velho, valores(velho, 1.0)));
+			Thread.sleep(200);
+			sincrono.flush();
+			ExecutionException erro = Assertions.assertThrows(ExecutionException.class, conflito::get);
+			Assertions.assertTrue(erro.getCause() instanceof ConflictException);
+			Assertions.assertEquals(9000.0, renda(velho.getId()));
+		} finally {
+			executor.shutdown();
+			sincrono.shutdown();
+		}
+	}
+
+	private ClientDTO criar(String cpf) {
+		ClientDTO novo = servico.insert(new ClientDTO(null, "Write-behind", cpf, 500.0,
+				Instant.parse("1990-01-01T00:00:00Z"), 0, null));
+		criados.add(novo.getId());
+		return novo;
+	}
+
+	private static ClientDTO valores(ClientDTO cliente, double income) {
+		return new ClientDTO(null, cliente.getName(), cliente.getCpf(), income, cliente.getBirthDate(), cliente.getChildren());
+	}
+
+	private double renda(Long id) {
+		return jdbc.queryForObject("SELECT income FROM tb_client WHERE id = ?", Double.class, id);
+	}
+
+	private long versao(Long id) {
+		return jdbc.queryForObject("SELECT version FROM tb_client WHERE id = ?", Long.class, id);
+	}
+}
@@ -0,0 +1,137 @@
+package com.iftm.client.tests.services;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.h2.tools.Server;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.iftm.client.dto.BatchResultDTO;
+import com.iftm.client.dto.ClientDTO;
+import com.iftm.client.dto.IncomeChangeDTO;
+import com.iftm.client.dto.PurgeResultDTO;
+import com.iftm.client.services.ClientService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Profile prod contra um H2 em modo servidor (TCP), iniciado pelo próprio teste:
+ * as conexões passam pela rede e pelo pool do Hikari com as configurações de produção.
+ * A tabela é criada (e o import.sql carregado) pelo teste; em produção o profile usa ddl-auto=update.
+ */
+@SpringBootTest
+@ActiveProfiles("prod")
+public class ClienteServiceProdTestIT {
+
+	private static final Server servidor = iniciarServidor();
+
+	@Autowired
+	private ClientService servico;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private EntityManagerFactory emf;
+
+	@DynamicPropertySource
+	static void banco(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url",
+				() -> "jdbc:h2:tcp://localhost:" + servidor.getPort() + "/mem:prodit;QUERY_CACHE_SIZE=64");
+		registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+	}
+
+	/**
+	 * Cenário de Teste: o pool e o Hibernate sobem com as configurações do profile prod
+	 * Resultado:
+	 * 		- Hikari com pool fixo de 10 conexões apontando para o servidor TCP
+	 * 		- lotes JDBC de 50 comandos, ordenados, inclusive para entidades versionadas
+	 */
+	@Test
+	public void testarProfileProdConfiguraPoolELotes() throws SQLException {
+		HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+		Assertions.assertEquals(10, hikari.getMaximumPoolSize());
+		Assertions.assertEquals(10, hikari.getMinimumIdle());
+		Assertions.assertTrue(hikari.getJdbcUrl().startsWith("jdbc:h2:tcp://"));
+
+		Map<String, Object> propriedades = emf.getProperties();
+		Assertions.assertEquals("50", propriedades.get("hibernate.jdbc.batch_size"));
+		Assertions.assertEquals("true", propriedades.get("hibernate.order_inserts"));
+		Assertions.assertEquals("true", propriedades.get("hibernate.order_updates"));
+		Assertions.assertEquals("true", propriedades.get("hibernate.jdbc.batch_versioned_data"));
+		Assertions.assertEquals("16", propriedades.get("hibernate.default_batch_fetch_size"));
+	}
+
+	/**
+	 * Cenário de Teste: inserção em lote, alteração de income em lote e purge pelo servidor
+	 * Entrada:
+	 * 		- 120 clientes com income acima de 800000000
+	 * Resultado:
+	 * 		- todos inseridos, alterados e depois removidos pelo purge
+	 */
+	@Test
+	public void testarEscritasEmLoteNoServidor() {
+		List<ClientDTO> novos = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			novos.add(new ClientDTO(null, "Prod " + i, String.format("555%08d", i), 800000001.0 + i,
+					Instant.parse("1990-01-01T00:00:00Z"), 0, null));
+		}
+		List<BatchResultDTO> inseridos = servico.insertBatch(novos.iterator());
+		Assertions.assertEquals(120, inseridos.size());
+
+		List<IncomeChangeDTO> alteracoes = new ArrayList<>();
+		for (BatchResultDTO inserido : inseridos) {
+			Assertions.assertEquals(BatchResultDTO.Status.CREATED, inserido.getStatus());
+			alteracoes.add(new IncomeChangeDTO(inserido.getId(), 900000001.0));
+		}
+		for (BatchResultDTO alterado : servico.updateIncomes(alteracoes)) {
+			Assertions.assertEquals(BatchResultDTO.Status.UPDATED, alterado.getStatus());
+		}
+
+		PageRequest pageRequest = PageRequest.of(0, 10, Direction.ASC, "id");
+		Page<ClientDTO> pagina = servico.findByIncomeGreaterThan(pageRequest, 900000000.0);
+		Assertions.assertEquals(120, pagina.getTotalElements());
+		Assertions.assertEquals(1L, pagina.getContent().get(0).getVersion());
+
+		PurgeResultDTO purge = servico.purgeByIncomeGreaterThan(900000000.0);
+		Assertions.assertEquals(120, purge.getDeleted());
+		Assertions.assertTrue(servico.findByIncomeGreaterThan(pageRequest, 900000000.0).isEmpty());
+	}
+
+	/*
+	 * -tcpDaemon: o servidor não segura a JVM; ele fica no ar até o contexto do Spring
+	 * (que fecha no fim dos testes) não precisar mais dele.
+	 */
+	private static Server iniciarServidor() {
+		try {
+			return Server.createTcpServer("-tcpPort", String.valueOf(portaLivre()), "-tcpDaemon", "-ifNotExists").start();
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not start the H2 TCP server", e);
+		}
+	}
+
+	/* A porta só é usada pelo servidor depois que o socket de teste foi fechado. */
+	private static int portaLivre() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not find a free port for the H2 TCP server", e);
+		}
+	}
+}
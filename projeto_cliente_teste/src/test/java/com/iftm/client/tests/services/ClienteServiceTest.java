@@ -10,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -20,7 +21,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.iftm.client.dto.ClientDTO;
 import com.iftm.client.entities.Client;
 import com.iftm.client.repositories.ClientRepository;
+import com.iftm.client.services.ClientCache;
 import com.iftm.client.services.ClientService;
+import com.iftm.client.services.analytics.ClientColumnarSnapshot;
 import com.iftm.client.services.exceptions.ResourceNotFoundException;
 
 // para testar camada de serviço utilize essa notação, que carrega o contexto com os recursos do Spring boot
@@ -33,6 +36,15 @@ public class ClienteServiceTest {
 	@Mock
 	private ClientRepository rep; 
 	
+	@Mock
+	private ClientCache cache;
+	
+	@Mock
+	private ApplicationEventPublisher publisher;
+	
+	@Mock
+	private ClientColumnarSnapshot snapshot;
+	
 	/**
 	 * Atividade A6
 	 * Cenário de Teste
@@ -134,9 +146,9 @@ public class ClienteServiceTest {
 		List <Client> lista = new ArrayList<Client>();
 		lista.add(new Client(8L, "Toni Morrsion", "10219344681", 10000.0, Instant.parse("1940-02-23T07:00:00Z"), 0));
 
-		Page<Client> pag = new PageImpl<>(lista, pageRequest, 1);
+		Page<ClientDTO> pag = new PageImpl<>(lista, pageRequest, 1).map(x -> new ClientDTO(x));
 		//configurar Mock
-		Mockito.when(rep.findByIncomeGreaterThan(entrada, pageRequest)).thenReturn(pag);
+		Mockito.when(rep.findDtoByIncomeGreaterThan(entrada, pageRequest)).thenReturn(pag);
 		//executar o teste
 		Page<ClientDTO> resultado = servico.findByIncomeGreaterThan(pageRequest, entrada);
 		//verificar as execuções da classe mock e de seus métodos
@@ -145,7 +157,7 @@ public class ClienteServiceTest {
 		for (int i = 0; i < lista.size(); i++) {
 			Assertions.assertEquals(lista.get(i), resultado.toList().get(i).toEntity());
 		}
-		Mockito.verify(rep, Mockito.times(1)).findByIncomeGreaterThan(entrada, pageRequest);
+		Mockito.verify(rep, Mockito.times(1)).findDtoByIncomeGreaterThan(entrada, pageRequest);
 	}	
 	
 	/** Exercicios extras feitos em sala
@@ -183,16 +195,16 @@ public class ClienteServiceTest {
 		List <Client> listaClientes = new ArrayList<Client>();
 		listaClientes.add(new Client(4l, "Carolina Maria de Jesus", "10419244771", 7500.0, Instant.parse("1996-12-23T07:00:00Z"), 0));
 		
-		Page<Client> clientes = new PageImpl<Client>(listaClientes);
+		Page<ClientDTO> clientes = new PageImpl<Client>(listaClientes).map(x -> new ClientDTO(x));
 		
-		Mockito.when(rep.findByCpfLike(cpf, pageRequest)).thenReturn(clientes);
+		Mockito.when(rep.findDtoByCpfLike(cpf, pageRequest)).thenReturn(clientes);
 		Page<ClientDTO> resultado = servico.findByCpfLike(pageRequest, cpf);
 		Assertions.assertFalse(resultado.isEmpty());
 		Assertions.assertEquals(listaClientes.size(), resultado.getNumberOfElements());
 		for (int i = 0; i < listaClientes.size(); i++) {
 			Assertions.assertEquals(listaClientes.get(i), resultado.toList().get(i).toEntity());
 		}		
-		Mockito.verify(rep, Mockito.times(1)).findByCpfLike(cpf, pageRequest);		
+		Mockito.verify(rep, Mockito.times(1)).findDtoByCpfLike(cpf, pageRequest);		
 	}	
 
 	